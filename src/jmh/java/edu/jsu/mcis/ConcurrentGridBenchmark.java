@@ -0,0 +1,55 @@
+package edu.jsu.mcis;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * These benchmarks compare ConcurrentGrid with a plain Grid behind one
+ * global lock, when several threads toggle flags on random locations
+ * of one shared 1000-by-1000 board.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ConcurrentGridBenchmark {
+    private static final int SIDE = 1000;
+
+    private Grid locked;
+    private ConcurrentGrid concurrent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+		locked = new Grid(SIDE, SIDE, SIDE * SIDE / 5, new Random(42));
+		concurrent = new ConcurrentGrid(SIDE, SIDE, SIDE * SIDE / 5, new Random(42));
+    }
+
+    @Benchmark
+    public void globalLock() {
+		int row = ThreadLocalRandom.current().nextInt(SIDE);
+		int col = ThreadLocalRandom.current().nextInt(SIDE);
+		synchronized(locked) {
+			if(locked.isFlagAt(row, col)) {
+				locked.removeFlagAt(row, col);
+			}
+			else {
+				locked.placeFlagAt(row, col);
+			}
+		}
+    }
+
+    @Benchmark
+    public void compareAndSet() {
+		int row = ThreadLocalRandom.current().nextInt(SIDE);
+		int col = ThreadLocalRandom.current().nextInt(SIDE);
+		if(concurrent.isFlagAt(row, col)) {
+			concurrent.removeFlagAt(row, col);
+		}
+		else {
+			concurrent.placeFlagAt(row, col);
+		}
+    }
+}
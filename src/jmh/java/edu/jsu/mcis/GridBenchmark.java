@@ -0,0 +1,280 @@
+package edu.jsu.mcis;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * These benchmarks time the hot paths of the Grid class on boards from
+ * 8-by-8 up to 5000-by-5000 at several mine densities. They are run
+ * with `gradle jmh`, which also turns on the gc profiler so that the
+ * allocation rate of each path is reported next to its time.
+ *
+ * The `size` parameter is written as "widthxheight", and `density` is
+ * the fraction of locations that hold a mine (0.15625 is the beginner
+ * board's 10 in 64, 0.20625 is the expert board's 99 in 480).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GridBenchmark {
+
+    /**
+     * This class holds a freshly generated board of the given size and
+     * density.
+     */
+    @State(Scope.Thread)
+    public static class Board {
+        @Param({"8x8", "30x16", "1000x1000", "5000x5000"})
+        public String size;
+
+        @Param({"0.1", "0.15625", "0.20625"})
+        public double density;
+
+        public int width;
+        public int height;
+        public int mines;
+        public Grid grid;
+        public Grid deferred;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+			String[] parts = size.split("x");
+			width = Integer.parseInt(parts[0]);
+			height = Integer.parseInt(parts[1]);
+			mines = (int)Math.round((double)width * height * density);
+			grid = new Grid(width, height, mines, new Random(42));
+			deferred = new Grid(width, height, mines, new Random(42), Grid.Placement.SAFE_AREA);
+        }
+    }
+
+    /**
+     * This class holds a board with a large open region, which is
+     * reset before every call so that `uncoverAt` always cascades
+     * over the whole region.
+     */
+    @State(Scope.Thread)
+    public static class OpenBoard {
+        @Param({"8x8", "30x16", "1000x1000", "5000x5000"})
+        public String size;
+
+        @Param({"0.0", "0.01", "0.05"})
+        public double density;
+
+        public Grid grid;
+        public int row;
+        public int col;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+			String[] parts = size.split("x");
+			int width = Integer.parseInt(parts[0]);
+			int height = Integer.parseInt(parts[1]);
+			grid = new Grid(width, height, (int)Math.round((double)width * height * density), new Random(42));
+        }
+
+        /**
+         * This method resets the board to the same layout before every
+         * call and finds the open location nearest the top-left corner.
+         */
+        @Setup(Level.Invocation)
+        public void cover() {
+			grid.reset();
+			for(int i = 0; i < grid.getWidth() * grid.getHeight(); i++) {
+				int cell = grid.cellAt(i);
+				if((cell & Location.MINE) == 0 && (cell & Location.HINT_MASK) == 0) {
+					row = i / grid.getWidth();
+					col = i % grid.getWidth();
+					return;
+				}
+			}
+        }
+    }
+
+    /**
+     * This class holds a board with a RegionIndex, played by uncovering
+     * every tenth safe location, and a viewport of 100-by-100 locations
+     * in the middle of it.
+     */
+    @State(Scope.Thread)
+    public static class Indexed {
+        @Param({"1000x1000", "5000x5000"})
+        public String size;
+
+        public Grid grid;
+        public int top;
+        public int left;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+			String[] parts = size.split("x");
+			int width = Integer.parseInt(parts[0]);
+			int height = Integer.parseInt(parts[1]);
+			grid = new Grid(width, height, width * height / 10, new Random(42));
+			grid.setRegionIndexEnabled(true);
+			for(int i = 0; i < width * height; i += 10) {
+				if((grid.cellAt(i) & Location.MINE) == 0) {
+					grid.uncoverAt(i / width, i % width);
+				}
+			}
+			top = height / 2 - 50;
+			left = width / 2 - 50;
+        }
+    }
+
+    /**
+     * This class holds an 8-by-8 board with a number of listeners,
+     * either typed GridListeners or string Observers, on which a flag
+     * is toggled to measure the cost of telling them.
+     */
+    @State(Scope.Thread)
+    public static class Dispatch {
+        @Param({"1", "8"})
+        public int listeners;
+
+        @Param({"typed", "observer"})
+        public String kind;
+
+        public Grid grid;
+        public MoveBatch flagAll;
+        public MoveBatch unflagAll;
+
+        @Setup(Level.Trial)
+        public void setUp(Blackhole blackhole) {
+			grid = new Grid(8, 8, 10, new Random(42));
+			flagAll = new MoveBatch(64);
+			unflagAll = new MoveBatch(64);
+			for(int i = 0; i < 64; i++) {
+				flagAll.flag(i / 8, i % 8);
+				unflagAll.unflag(i / 8, i % 8);
+			}
+			for(int i = 0; i < listeners; i++) {
+				if(kind.equals("typed")) {
+					grid.addGridListener(new GridListener() {
+						public void onFlag(int row, int col) {
+							blackhole.consume(row + col);
+						}
+
+						public void onUnflag(int row, int col) {
+							blackhole.consume(row - col);
+						}
+					});
+				}
+				else {
+					grid.addObserver((o, arg) -> blackhole.consume(arg));
+				}
+			}
+        }
+    }
+
+    @Benchmark
+    public Grid construct(Board board) {
+        return new Grid(board.width, board.height, board.mines, new Random(42));
+    }
+
+    @Benchmark
+    public Grid reset(Board board) {
+		board.grid.reset();
+        return board.grid;
+    }
+
+    /**
+     * This benchmark times the reset of a grid whose mines wait for the
+     * first uncover, which only clears the board.
+     */
+    @Benchmark
+    public Grid resetDeferred(Board board) {
+		board.deferred.reset();
+        return board.deferred;
+    }
+
+    /**
+     * This benchmark times the mine sampling alone. It runs on a board
+     * that already has mines, so the layout it leaves is meaningless,
+     * but the number of draws (and so the work) is the same.
+     */
+    @Benchmark
+    public Grid placeMines(Board board) {
+		board.grid.placeMines();
+        return board.grid;
+    }
+
+    @Benchmark
+    public Grid placeHints(Board board) {
+		board.grid.placeHints();
+        return board.grid;
+    }
+
+    @Benchmark
+    public Grid.Result getResult(Board board) {
+        return board.grid.getResult();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = 1)
+    @Measurement(iterations = 20, batchSize = 1)
+    public Grid.Result uncoverCascade(OpenBoard board) {
+		board.grid.uncoverAt(board.row, board.col);
+        return board.grid.getResult();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int flagDispatch(Dispatch dispatch) {
+		dispatch.grid.placeFlagAt(0, 0);
+		dispatch.grid.removeFlagAt(0, 0);
+        return dispatch.grid.getFlagCount();
+    }
+
+    /**
+     * These benchmarks count the uncovered locations of a viewport with
+     * the RegionIndex, and by scanning the viewport.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int viewportIndexed(Indexed indexed) {
+        return indexed.grid.getRegionIndex().getUncovered(indexed.top, indexed.left, indexed.top + 99, indexed.left + 99);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int viewportScan(Indexed indexed) {
+		int width = indexed.grid.getWidth();
+		int count = 0;
+		for(int r = indexed.top; r < indexed.top + 100; r++) {
+			for(int c = indexed.left; c < indexed.left + 100; c++) {
+				if((indexed.grid.cellAt(r * width + c) & Location.TYPE_MASK) == Location.UNCOVERED) {
+					count++;
+				}
+			}
+		}
+        return count;
+    }
+
+    /**
+     * These benchmarks flag and unflag the whole board one move at a
+     * time, and as two MoveBatches, whose listeners hear about each 
+     * batch once.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int flagEach(Dispatch dispatch) {
+		for(int i = 0; i < 64; i++) {
+			dispatch.grid.placeFlagAt(i / 8, i % 8);
+		}
+		for(int i = 0; i < 64; i++) {
+			dispatch.grid.removeFlagAt(i / 8, i % 8);
+		}
+        return dispatch.grid.getFlagCount();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int flagBatch(Dispatch dispatch) {
+		dispatch.grid.apply(dispatch.flagAll);
+		dispatch.grid.apply(dispatch.unflagAll);
+        return dispatch.grid.getFlagCount();
+    }
+}
@@ -0,0 +1,379 @@
+package edu.jsu.mcis;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * This class generates boards that can be solved without guessing,
+ * and keeps a few of each size ready. A board is a candidate grid with
+ * one opening already uncovered: a location with a hint of 0, and the
+ * region around it. The candidate is kept only if the Solver, starting
+ * from that opening, can uncover every other safe location without
+ * ever being stuck. Most candidates fail, so generation is done ahead
+ * of time by a small pool of daemon worker threads.
+ *
+ * Boards are kept in one bounded queue per (width, height, mines). The
+ * workers only refill queues that are not full, one board per task, so
+ * every size that is in use is kept topped up in turn. A Grid that is
+ * given the pool with `Grid.setBoardPool` takes the next ready board
+ * on every reset and simply adopts its cells. When the queue for its
+ * size is empty, the take is counted as a miss and the grid places its
+ * mines as usual instead, so a reset never waits for a search.
+ *
+ * Some sizes have no such boards, or very few (a board that is nearly
+ * all mines, for instance), and large boards take long to check. The
+ * pool only serves boards of at most MAX_CELLS locations, with at most
+ * one mine in every MIN_CELLS_PER_MINE locations, and ignores other
+ * sizes altogether. After MAX_ATTEMPTS failed candidates, the last
+ * candidate is used anyway and counted as a fallback.
+ *
+ * Hits, misses, fallbacks, and the time taken to generate each board
+ * are counted, so that the pool can be sized from real play.
+ */
+public class BoardPool implements Closeable {
+    public static final int MAX_ATTEMPTS = 10000;
+    public static final int MAX_CELLS = 4096;
+    public static final int MIN_CELLS_PER_MINE = 4;
+
+    /**
+     * This class is a ready board: its packed cells, with the opening
+     * uncovered, and the number of locations in the opening.
+     */
+    static final class Board {
+        final byte[] cells;
+        final int uncovered;
+
+        Board(byte[] cells, int uncovered) {
+			this.cells = cells;
+			this.uncovered = uncovered;
+        }
+    }
+
+    /**
+     * This class holds the ready boards of one size, and how many
+     * workers are refilling them.
+     */
+    private static final class Shelf {
+        private final int width;
+        private final int height;
+        private final int mines;
+        private final BlockingQueue<Board> ready;
+        private final AtomicInteger filling;
+
+        Shelf(int width, int height, int mines, int capacity) {
+			this.width = width;
+			this.height = height;
+			this.mines = mines;
+			ready = new ArrayBlockingQueue<>(capacity);
+			filling = new AtomicInteger();
+        }
+    }
+
+    private final int capacity;
+    private final int threads;
+    private final ExecutorService workers;
+    private final ConcurrentHashMap<List<Integer>, Shelf> shelves;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder generated;
+    private final LongAdder candidates;
+    private final LongAdder fallbacks;
+    private final LongAdder generationNanos;
+    private volatile boolean closed;
+
+    /**
+     * This constructor creates a pool that keeps 16 boards of each size
+     * and generates them on all but one of the processors.
+     */
+    public BoardPool() {
+		this(16, Math.max(Runtime.getRuntime().availableProcessors() - 1, 1));
+    }
+
+    /**
+     * This constructor creates a pool that keeps `capacity` boards of
+     * each size, generated by `threads` daemon worker threads.
+     *
+     * @param capacity the number of boards to keep ready for each size
+     * @param threads the number of worker threads
+     */
+    public BoardPool(int capacity, int threads) {
+		if(capacity <= 0 || threads <= 0) {
+			throw new IllegalArgumentException("capacity " + capacity + ", threads " + threads);
+		}
+		this.capacity = capacity;
+		this.threads = threads;
+		workers = Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "BoardPool-worker");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		shelves = new ConcurrentHashMap<>();
+		hits = new LongAdder();
+		misses = new LongAdder();
+		generated = new LongAdder();
+		candidates = new LongAdder();
+		fallbacks = new LongAdder();
+		generationNanos = new LongAdder();
+    }
+
+    /**
+     * This method returns whether the pool serves boards of the given
+     * size: no more than MAX_CELLS locations, and no more than one mine
+     * in every MIN_CELLS_PER_MINE locations.
+     *
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @return true if boards of this size can be prepared
+     */
+    public static boolean supports(int width, int height, int mines) {
+		long cells = (long)width * height;
+        return cells <= MAX_CELLS && (long)mines * MIN_CELLS_PER_MINE <= cells;
+    }
+
+    /**
+     * This method starts filling the pool with boards of the given size,
+     * if it is not already doing so, and returns at once. Sizes that the
+     * pool does not support are ignored.
+     *
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     */
+    public void prepare(int width, int height, int mines) {
+		if(supports(width, height, mines)) {
+			refill(shelf(width, height, mines));
+		}
+    }
+
+    /**
+     * This method returns how many boards of the given size are ready.
+     *
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @return the number of ready boards
+     */
+    public int getReadyCount(int width, int height, int mines) {
+		Shelf shelf = shelves.get(Arrays.asList(width, height, mines));
+        return shelf == null ? 0 : shelf.ready.size();
+    }
+
+    /**
+     * This method takes a ready board of the given size, if there is
+     * one, and then asks the workers to top the pool up again. It never
+     * generates a board itself.
+     *
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @return a board that no other caller gets, or null if none is ready
+     */
+    Board take(int width, int height, int mines) {
+		if(supports(width, height, mines) == false) {
+			misses.increment();
+			return null;
+		}
+		Shelf shelf = shelf(width, height, mines);
+		Board board = shelf.ready.poll();
+		if(board != null) {
+			hits.increment();
+		}
+		else {
+			misses.increment();
+		}
+		refill(shelf);
+        return board;
+    }
+
+    private Shelf shelf(int width, int height, int mines) {
+		if(width <= 0 || height <= 0 || mines < 0 || mines > (long)width * height) {
+			throw new IllegalArgumentException(width + "x" + height + " with " + mines + " mines");
+		}
+        return shelves.computeIfAbsent(Arrays.asList(width, height, mines), key -> new Shelf(width, height, mines, capacity));
+    }
+
+    /**
+     * This method starts as many refill tasks for the shelf as there are
+     * free slots in it, up to the number of workers, counting the tasks
+     * that are already running.
+     *
+     * @param shelf the shelf to refill
+     */
+    private void refill(Shelf shelf) {
+		while(closed == false) {
+			int running = shelf.filling.get();
+			if(running >= threads || running >= capacity - shelf.ready.size()) {
+				return;
+			}
+			if(shelf.filling.compareAndSet(running, running + 1)) {
+				try {
+					workers.execute(() -> fill(shelf));
+				}
+				catch(RejectedExecutionException e) {
+					shelf.filling.decrementAndGet();
+					return;
+				}
+			}
+		}
+    }
+
+    /**
+     * This method generates one board for the shelf on a worker thread,
+     * and starts another refill task if there is still room.
+     *
+     * @param shelf the shelf to add to
+     */
+    private void fill(Shelf shelf) {
+		try {
+			Board board = generate(shelf.width, shelf.height, shelf.mines, ThreadLocalRandom.current());
+			shelf.ready.offer(board);
+		}
+		finally {
+			shelf.filling.decrementAndGet();
+		}
+		refill(shelf);
+    }
+
+    /**
+     * This method generates candidates until one can be solved without
+     * guessing, or until MAX_ATTEMPTS have failed.
+     *
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @param random the pseudorandom number generator
+     * @return the board
+     */
+    private Board generate(int width, int height, int mines, Random random) {
+		long start = System.nanoTime();
+		Board board = null;
+		for(int attempt = 0; attempt < MAX_ATTEMPTS && board == null; attempt++) {
+			candidates.increment();
+			board = candidate(width, height, mines, random, attempt == MAX_ATTEMPTS - 1);
+		}
+		generated.increment();
+		generationNanos.add(System.nanoTime() - start);
+        return board;
+    }
+
+    /**
+     * This method makes one candidate, opens it from a random location
+     * with a hint of 0 (or a random safe location if there is none), and
+     * checks that the Solver can finish it from there.
+     *
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @param random the pseudorandom number generator
+     * @param last whether to keep the candidate even if it fails
+     * @return the board, or null if it fails and is not the last
+     */
+    private Board candidate(int width, int height, int mines, Random random, boolean last) {
+		Grid grid = new Grid(width, height, mines, random);
+		int total = width * height;
+		int start = -1;
+		int offset = random.nextInt(total);
+		for(int i = 0; i < total && start < 0; i++) {
+			int index = (offset + i) % total;
+			if(grid.cellAt(index) == 0) {
+				start = index;
+			}
+		}
+		for(int i = 0; i < total && start < 0 && last; i++) {
+			int index = (offset + i) % total;
+			if((grid.cellAt(index) & Location.MINE) == 0) {
+				start = index;
+			}
+		}
+		if(start < 0) {
+			if(last) {
+				fallbacks.increment();
+				return new Board(grid.cellArray(), 0);
+			}
+			return null;
+		}
+		grid.uncoverAt(start / width, start % width);
+		byte[] opened = grid.cellArray().clone();
+		int uncovered = 0;
+		for(int i = 0; i < total; i++) {
+			if((opened[i] & Location.TYPE_MASK) == Location.UNCOVERED) {
+				uncovered++;
+			}
+		}
+		Solver solver = new Solver(grid);
+		while(grid.getResult() == Grid.Result.NONE) {
+			solver.solve();
+			int index = solver.nextSafe();
+			if(index < 0) {
+				break;
+			}
+			grid.uncoverAt(index / width, index % width);
+		}
+		if(grid.getResult() == Grid.Result.WIN) {
+			return new Board(opened, uncovered);
+		}
+		else if(last) {
+			fallbacks.increment();
+			return new Board(opened, uncovered);
+		}
+        return null;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * This method returns how many boards had to be used although they
+     * could not be solved without guessing.
+     *
+     * @return the number of fallback boards
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    public long getBoardsGenerated() {
+        return generated.sum();
+    }
+
+    public long getCandidatesTried() {
+        return candidates.sum();
+    }
+
+    /**
+     * This method returns the average time taken by a worker to generate
+     * a board, counting every rejected candidate along the way.
+     *
+     * @return the average generation time in milliseconds
+     */
+    public double getAverageGenerationMillis() {
+		long boards = generated.sum();
+        return boards == 0 ? 0 : generationNanos.sum() / 1e6 / boards;
+    }
+
+    /**
+     * This method stops the workers. Boards that are ready can still be
+     * taken.
+     */
+    public void close() {
+		closed = true;
+		workers.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses, %d boards from %d candidates (%d fallbacks), %.2f ms per board",
+            getHits(), getMisses(), getBoardsGenerated(), getCandidatesTried(), getFallbacks(), getAverageGenerationMillis());
+    }
+}
@@ -0,0 +1,558 @@
+package edu.jsu.mcis;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.swing.*;
+
+
+/**
+ * This class draws a whole Minesweeper grid as a single component. It
+ * paints each location straight from the grid's state using a small set
+ * of tile images (covered, flagged, mine, and uncovered with hints 0 to
+ * 8) that are rendered once per view. As a GridListener it repaints
+ * only the rectangle that covers the locations that changed.
+ *
+ * The view does not handle clicks itself. Whoever adds a MouseListener
+ * to it can turn the pixel coordinates of an event into a location with
+ * `rowAt(y)` and `colAt(x)`.
+ *
+ * So that tools such as the Robot acceptance tests can still address
+ * locations by name, grids with at most NAMED_CELL_LIMIT locations also
+ * get one invisible child label per location, named "cell:i:j" where
+ * `i` is the row and `j` is the column. These labels draw nothing and
+ * have no listeners (so clicks fall through to the view), but they
+ * keep the raised bevel border while covered and report the state of
+ * their location (covered, flagged, uncovered, or mine) as their
+ * tooltip text.
+ *
+ * A view created with `coalesced` set may be told about changes on any
+ * thread, such as a worker thread that plays the grid off the event 
+ * dispatch thread. It then touches no Swing state from the listener
+ * methods. Instead, the changed locations are collected in a dirty set
+ * (the bounding rectangle of the changes, and for named cells, the 
+ * changed locations themselves), and a single frame task on the event
+ * dispatch thread applies them all at once. A frame is scheduled with
+ * one `invokeLater` when the first change after the last frame comes
+ * in, and is held back if need be so that frames come no faster than
+ * the refresh rate of the display. However large a reveal is, the
+ * event dispatch thread only ever sees one repaint per frame.
+ *
+ * While GridMetrics are enabled, every paint reports how many tiles it
+ * drew and how long that took.
+ */
+public class BoardView extends JComponent implements GridListener {
+    public static final int CELL_SIZE = 50;
+    public static final int NAMED_CELL_LIMIT = 64 * 64;
+
+    private static final int MINE_TILE = 9;
+    private static final int COVERED_TILE = 10;
+    private static final int FLAG_TILE = 11;
+    private static final long FRAME_NANOS = 1000000000L / refreshRate();
+
+    /**
+     * This class is the invisible, named stand-in for one location.
+     * Mouse presses, releases, and clicks aimed at the label itself
+     * are passed on to the view, in the view's coordinates, so that 
+     * they reach the view's listeners like any other click.
+     */
+    private class CellName extends JLabel {
+        private final int index;
+
+        CellName(int row, int col) {
+			index = row * grid.getWidth() + col;
+			setName("cell:" + row + ":" + col);
+			setPreferredSize(new Dimension(CELL_SIZE, CELL_SIZE));
+			setHorizontalAlignment(SwingConstants.CENTER);
+			refresh();
+			setBounds(col * CELL_SIZE, row * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+			addMouseListener(new MouseAdapter() {
+				public void mousePressed(MouseEvent event) {
+					forward(event);
+				}
+				
+				public void mouseReleased(MouseEvent event) {
+					forward(event);
+				}
+				
+				public void mouseClicked(MouseEvent event) {
+					forward(event);
+				}
+			});
+        }
+
+        private void forward(MouseEvent event) {
+			BoardView.this.dispatchEvent(SwingUtilities.convertMouseEvent(this, event, BoardView.this));
+        }
+
+        /**
+         * This method keeps the border in step with the location.
+         */
+        void refresh() {
+			if(Location.typeOf(grid.cellAt(index)) == Location.Type.UNCOVERED) {
+				setBorder(BorderFactory.createEmptyBorder());
+			}
+			else {
+				setBorder(BorderFactory.createRaisedBevelBorder());
+			}
+        }
+
+        @Override
+        public String getToolTipText() {
+			return describe(grid.cellAt(index));
+        }
+
+        @Override
+        public void paint(Graphics g) {}
+    }
+
+    private final Grid grid;
+    private final CellName[] names;
+    private Image[] tiles;
+    private final boolean coalesced;
+    private final Object dirtyLock;
+    private long[] dirtyBits;
+    private int[] dirty;
+    private int[] spare;
+    private int dirtyCount;
+    private int minRow;
+    private int maxRow;
+    private int minCol;
+    private int maxCol;
+    private boolean allDirty;
+    private boolean framePending;
+    private long lastFrame;
+    private final javax.swing.Timer frameTimer;
+    private final CopyOnWriteArrayList<Runnable> frameListeners;
+
+    /**
+     * This constructor creates a view of the given grid and registers
+     * it as a listener of the grid.
+     *
+     * @param grid the grid to draw
+     */
+    public BoardView(Grid grid) {
+		this(grid, false);
+    }
+
+    /**
+     * This constructor creates a view of the given grid that, if
+     * `coalesced` is true, applies the changes it hears about in frames
+     * on the event dispatch thread, so that the grid may be played on
+     * another thread.
+     *
+     * @param grid the grid to draw
+     * @param coalesced whether to collect changes into frames
+     */
+    public BoardView(Grid grid, boolean coalesced) {
+		this.grid = grid;
+		this.coalesced = coalesced;
+		setLayout(null);
+		setOpaque(true);
+		setBackground(UIManager.getColor("Panel.background"));
+		setPreferredSize(new Dimension(grid.getWidth() * CELL_SIZE, grid.getHeight() * CELL_SIZE));
+		if((long)grid.getWidth() * grid.getHeight() <= NAMED_CELL_LIMIT) {
+			names = new CellName[grid.getWidth() * grid.getHeight()];
+			for(int r = 0; r < grid.getHeight(); r++) {
+				for(int c = 0; c < grid.getWidth(); c++) {
+					names[r * grid.getWidth() + c] = new CellName(r, c);
+					add(names[r * grid.getWidth() + c]);
+				}
+			}
+		}
+		else {
+			names = null;
+		}
+		dirtyLock = new Object();
+		if(names != null) {
+			dirtyBits = new long[(names.length + 63) >> 6];
+			dirty = new int[names.length];
+			spare = new int[names.length];
+		}
+		clearBounds();
+		frameTimer = new javax.swing.Timer(0, event -> flushFrame());
+		frameTimer.setRepeats(false);
+		frameListeners = new CopyOnWriteArrayList<>();
+		ToolTipManager.sharedInstance().registerComponent(this);
+		grid.addGridListener(this);
+    }
+
+    /**
+     * This method returns the refresh rate of the default screen, or 60
+     * if it is not known.
+     *
+     * @return the refresh rate in frames per second
+     */
+    private static int refreshRate() {
+		if(GraphicsEnvironment.isHeadless() == false) {
+			int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+			if(rate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+				return rate;
+			}
+		}
+        return 60;
+    }
+
+    /**
+     * This method adds an action that a coalesced view runs on the 
+     * event dispatch thread at the end of every frame, for instance to
+     * bring other widgets up to date with the grid.
+     *
+     * @param listener the action to run
+     */
+    public void addFrameListener(Runnable listener) {
+		frameListeners.add(listener);
+    }
+
+    /**
+     * This method returns the row under the vertical pixel coordinate
+     * y, or -1 if there is none.
+     *
+     * @param y the vertical pixel coordinate
+     * @return the row at y
+     */
+    public int rowAt(int y) {
+		if(y < 0 || y >= grid.getHeight() * CELL_SIZE) {
+			return -1;
+		}
+        return y / CELL_SIZE;
+    }
+
+    /**
+     * This method returns the column under the horizontal pixel
+     * coordinate x, or -1 if there is none.
+     *
+     * @param x the horizontal pixel coordinate
+     * @return the column at x
+     */
+    public int colAt(int x) {
+		if(x < 0 || x >= grid.getWidth() * CELL_SIZE) {
+			return -1;
+		}
+        return x / CELL_SIZE;
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+		int row = rowAt(event.getY());
+		int col = colAt(event.getX());
+		if(row < 0 || col < 0) {
+			return null;
+		}
+        return describe(grid.cellAt(row * grid.getWidth() + col));
+    }
+
+    /**
+     * This method paints the locations that intersect the clip.
+     *
+     * @param g the graphics context
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+		if(tiles == null) {
+			tiles = renderTiles();
+		}
+		Rectangle clip = g.getClipBounds();
+		if(clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+		g.setColor(getBackground());
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+		int width = grid.getWidth();
+		int fromRow = Math.max(clip.y / CELL_SIZE, 0);
+		int toRow = Math.min((clip.y + clip.height - 1) / CELL_SIZE, grid.getHeight() - 1);
+		int fromCol = Math.max(clip.x / CELL_SIZE, 0);
+		int toCol = Math.min((clip.x + clip.width - 1) / CELL_SIZE, width - 1);
+		GridMetrics metrics = GridMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		GridMetrics.TilePaintEvent event = metrics == null ? null : metrics.beginPaint();
+		for(int r = fromRow; r <= toRow; r++) {
+			for(int c = fromCol; c <= toCol; c++) {
+				g.drawImage(tiles[tileOf(grid.cellAt(r * width + c))], c * CELL_SIZE, r * CELL_SIZE, null);
+			}
+		}
+		if(metrics != null && toRow >= fromRow && toCol >= fromCol) {
+			metrics.painted(event, (toRow - fromRow + 1) * (toCol - fromCol + 1), System.nanoTime() - start);
+		}
+    }
+
+    /**
+     * These methods repaint the locations reported by the grid.
+     */
+    public void onUncovered(int row, int col, int hint) {
+		cellChanged(row, col);
+    }
+
+    public void onMine(int row, int col) {
+		cellChanged(row, col);
+    }
+
+    public void onFlag(int row, int col) {
+		cellChanged(row, col);
+    }
+
+    public void onUnflag(int row, int col) {
+		cellChanged(row, col);
+    }
+
+    public void onCovered(int row, int col) {
+		cellChanged(row, col);
+    }
+
+    /**
+     * This method repaints the bounding rectangle of the region once,
+     * instead of once per location.
+     *
+     * @param region the locations that changed
+     */
+    public void onRegion(Region region) {
+		if(coalesced) {
+			synchronized(dirtyLock) {
+				for(int i = 0; i < region.size(); i++) {
+					mark(region.getIndex(i));
+				}
+			}
+			requestFrame();
+			return;
+		}
+		int minRow = Integer.MAX_VALUE;
+		int maxRow = -1;
+		int minCol = Integer.MAX_VALUE;
+		int maxCol = -1;
+		for(int i = 0; i < region.size(); i++) {
+			int row = region.getRow(i);
+			int col = region.getCol(i);
+			minRow = Math.min(minRow, row);
+			maxRow = Math.max(maxRow, row);
+			minCol = Math.min(minCol, col);
+			maxCol = Math.max(maxCol, col);
+			if(names != null) {
+				names[region.getIndex(i)].refresh();
+			}
+		}
+		if(maxRow >= 0) {
+			repaint(minCol * CELL_SIZE, minRow * CELL_SIZE, (maxCol - minCol + 1) * CELL_SIZE, (maxRow - minRow + 1) * CELL_SIZE);
+		}
+    }
+
+    /**
+     * This method brings the whole view up to date, for instance after
+     * the grid was reset.
+     */
+    public void refreshAll() {
+		if(coalesced) {
+			synchronized(dirtyLock) {
+				allDirty = true;
+			}
+			requestFrame();
+			return;
+		}
+		if(names != null) {
+			for(CellName name : names) {
+				name.refresh();
+			}
+		}
+		repaint();
+    }
+
+    /**
+     * This method makes sure that a coalesced view has a frame coming,
+     * even if no location changed. It may be called on any thread.
+     */
+    public void requestFrame() {
+		synchronized(dirtyLock) {
+			if(framePending) {
+				return;
+			}
+			framePending = true;
+		}
+		SwingUtilities.invokeLater(() -> {
+			long wait = lastFrame + FRAME_NANOS - System.nanoTime();
+			if(wait <= 0) {
+				flushFrame();
+			}
+			else {
+				frameTimer.setInitialDelay((int)Math.max(wait / 1000000, 1));
+				frameTimer.restart();
+			}
+		});
+    }
+
+    /**
+     * This method applies every change collected since the last frame,
+     * with one repaint, and then runs the frame listeners. It must be
+     * called on the event dispatch thread.
+     */
+    void flushFrame() {
+		frameTimer.stop();
+		int[] changed = null;
+		int count = 0;
+		int top;
+		int bottom;
+		int left;
+		int right;
+		boolean all;
+		synchronized(dirtyLock) {
+			if(names != null) {
+				changed = dirty;
+				dirty = spare;
+				spare = changed;
+				count = dirtyCount;
+				for(int i = 0; i < count; i++) {
+					dirtyBits[changed[i] >> 6] &= ~(1L << changed[i]);
+				}
+			}
+			top = minRow;
+			bottom = maxRow;
+			left = minCol;
+			right = maxCol;
+			all = allDirty;
+			dirtyCount = 0;
+			allDirty = false;
+			framePending = false;
+			clearBounds();
+		}
+		lastFrame = System.nanoTime();
+		if(names != null) {
+			if(all) {
+				for(CellName name : names) {
+					name.refresh();
+				}
+			}
+			else {
+				for(int i = 0; i < count; i++) {
+					names[changed[i]].refresh();
+				}
+			}
+		}
+		if(all) {
+			repaint();
+		}
+		else if(bottom >= 0) {
+			repaint(left * CELL_SIZE, top * CELL_SIZE, (right - left + 1) * CELL_SIZE, (bottom - top + 1) * CELL_SIZE);
+		}
+		for(Runnable listener : frameListeners) {
+			listener.run();
+		}
+    }
+
+    /**
+     * This method adds a location to the dirty set. The caller must
+     * hold `dirtyLock`.
+     *
+     * @param index the flat index of the location
+     */
+    private void mark(int index) {
+		int width = grid.getWidth();
+		int row = index / width;
+		int col = index % width;
+		minRow = Math.min(minRow, row);
+		maxRow = Math.max(maxRow, row);
+		minCol = Math.min(minCol, col);
+		maxCol = Math.max(maxCol, col);
+		if(names != null && (dirtyBits[index >> 6] & (1L << index)) == 0) {
+			dirtyBits[index >> 6] |= 1L << index;
+			dirty[dirtyCount++] = index;
+		}
+    }
+
+    private void clearBounds() {
+		minRow = Integer.MAX_VALUE;
+		maxRow = -1;
+		minCol = Integer.MAX_VALUE;
+		maxCol = -1;
+    }
+
+    private void cellChanged(int row, int col) {
+		if(coalesced) {
+			synchronized(dirtyLock) {
+				mark(row * grid.getWidth() + col);
+			}
+			requestFrame();
+			return;
+		}
+		if(names != null) {
+			names[row * grid.getWidth() + col].refresh();
+		}
+		repaint(col * CELL_SIZE, row * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+    }
+
+    /**
+     * This method returns the index into `tiles` of the image for a
+     * packed cell.
+     *
+     * @param cell the packed cell
+     * @return the tile index
+     */
+    private static int tileOf(int cell) {
+		int type = cell & Location.TYPE_MASK;
+		if(type == Location.FLAGGED) {
+			return FLAG_TILE;
+		}
+		else if(type == 0) {
+			return COVERED_TILE;
+		}
+		else if((cell & Location.MINE) != 0) {
+			return MINE_TILE;
+		}
+        return cell & Location.HINT_MASK;
+    }
+
+    /**
+     * This method returns the tooltip text that describes a packed
+     * cell: covered, flagged, uncovered, or mine.
+     *
+     * @param cell the packed cell
+     * @return the description of the cell
+     */
+    private static String describe(int cell) {
+		int type = cell & Location.TYPE_MASK;
+		if(type == Location.FLAGGED) {
+			return "flagged";
+		}
+		else if(type == 0) {
+			return "covered";
+		}
+		else if((cell & Location.MINE) != 0) {
+			return "mine";
+		}
+        return "uncovered";
+    }
+
+    /**
+     * This method renders the tile images: the uncovered hints 0 to 8,
+     * then the mine, covered, and flagged tiles.
+     *
+     * @return the tile images
+     */
+    private Image[] renderTiles() {
+		ImageIcon flagIcon = new ImageIcon(getClass().getClassLoader().getResource("flag.png"));
+		ImageIcon mineIcon = new ImageIcon(getClass().getClassLoader().getResource("mine.png"));
+		Image[] images = new Image[12];
+		for(int i = 0; i < images.length; i++) {
+			BufferedImage image = new BufferedImage(CELL_SIZE, CELL_SIZE, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			g.setColor(getBackground());
+			g.fillRect(0, 0, CELL_SIZE, CELL_SIZE);
+			if(i == COVERED_TILE || i == FLAG_TILE) {
+				BorderFactory.createRaisedBevelBorder().paintBorder(this, g, 0, 0, CELL_SIZE, CELL_SIZE);
+			}
+			ImageIcon icon = i == FLAG_TILE ? flagIcon : i == MINE_TILE ? mineIcon : null;
+			if(icon != null) {
+				icon.paintIcon(this, g, (CELL_SIZE - icon.getIconWidth()) / 2, (CELL_SIZE - icon.getIconHeight()) / 2);
+			}
+			if(i > 0 && i < MINE_TILE) {
+				g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+				g.setFont(UIManager.getFont("Label.font"));
+				g.setColor(UIManager.getColor("Label.foreground"));
+				FontMetrics metrics = g.getFontMetrics();
+				String text = String.valueOf(i);
+				g.drawString(text, (CELL_SIZE - metrics.stringWidth(text)) / 2, (CELL_SIZE - metrics.getHeight()) / 2 + metrics.getAscent());
+			}
+			g.dispose();
+			images[i] = image;
+		}
+        return images;
+    }
+}
@@ -0,0 +1,427 @@
+package edu.jsu.mcis;
+
+import java.util.*;
+
+
+/**
+ * This class represents an effectively unbounded Minesweeper grid. The
+ * board is split into chunks of CHUNK_SIZE by CHUNK_SIZE locations
+ * that are only generated when they are first touched, so memory grows
+ * with the explored area instead of with the size of the board. Any
+ * int row and column (including negative ones) is a legal index.
+ *
+ * Every chunk holds exactly `minesPerChunk` mines. Their placement is
+ * derived from the board seed and the chunk coordinates alone, so the
+ * same seed always produces the same board no matter in which order
+ * the chunks are visited. The cells use the same packed byte layout
+ * as the Grid class (see Location).
+ *
+ * Hints are computed when a chunk is first uncovered into, using the
+ * mines of its eight neighboring chunks (which are generated, mines
+ * only, as needed), so hints along chunk borders are exact and
+ * cascades in `uncoverAt` cross chunk boundaries transparently.
+ * Nothing about the density of mines keeps an open region on an
+ * unbounded board finite, so every uncover opens at most
+ * `cascadeLimit` locations. Where a cascade is cut off, its edge is
+ * left with uncovered locations of hint 0 next to covered ones, and
+ * uncovering one of those again carries the cascade on from there.
+ *
+ * Listeners are told about changes with the GridListener callbacks.
+ * As with Grid, all the locations opened by one uncover are reported
+ * together in a single `onRegion` call, and a mine with `onMine`.
+ *
+ * This class is a standalone model. It shares the cell layout and
+ * the listener interface of Grid, but not its type, since an
+ * unbounded board has no width, height, flat indices, or end to the
+ * game, and the classes built on Grid (Minesweeper, Solver, Simulator,
+ * GameServer) all depend on those.
+ */
+public class ChunkedGrid {
+    public static final int CHUNK_BITS = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    public static final int DEFAULT_CASCADE_LIMIT = 16 * CHUNK_CELLS;
+
+    /**
+     * This class holds the packed cells of one chunk. A chunk is
+     * created with its mines, and its hints are filled in the first
+     * time one of its locations is uncovered.
+     */
+    private static final class Chunk {
+        private final byte[] cells = new byte[CHUNK_CELLS];
+        private boolean hinted;
+    }
+
+    private final long seed;
+    private final int minesPerChunk;
+    private final int cascadeLimit;
+    private final Map<Long, Chunk> chunks;
+    private final Region regionView;
+    private long[] queue;
+    private boolean lost;
+    private volatile GridListener[] listeners;
+
+    /**
+     * This constructor creates an unbounded grid with the given seed
+     * and number of mines in every chunk, whose uncovers open at most
+     * DEFAULT_CASCADE_LIMIT locations each.
+     *
+     * @param seed the board seed
+     * @param minesPerChunk the number of mines in each chunk
+     */
+    public ChunkedGrid(long seed, int minesPerChunk) {
+		this(seed, minesPerChunk, DEFAULT_CASCADE_LIMIT);
+    }
+
+    /**
+     * This constructor creates an unbounded grid with the given seed
+     * and number of mines in every chunk, whose uncovers open at most
+     * `cascadeLimit` locations each.
+     *
+     * @param seed the board seed
+     * @param minesPerChunk the number of mines in each chunk
+     * @param cascadeLimit the most locations one uncover opens
+     */
+    public ChunkedGrid(long seed, int minesPerChunk, int cascadeLimit) {
+		if(minesPerChunk < 0 || minesPerChunk > CHUNK_CELLS) {
+			throw new IllegalArgumentException(minesPerChunk + " mines per chunk");
+		}
+		if(cascadeLimit <= 0) {
+			throw new IllegalArgumentException("cascade limit " + cascadeLimit);
+		}
+		this.seed = seed;
+		this.minesPerChunk = minesPerChunk;
+		this.cascadeLimit = cascadeLimit;
+		chunks = new HashMap<>();
+		regionView = new Region(this);
+		queue = new long[64];
+		listeners = new GridListener[0];
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getMinesPerChunk() {
+        return minesPerChunk;
+    }
+
+    public int getCascadeLimit() {
+        return cascadeLimit;
+    }
+
+    /**
+     * This method returns the number of chunks that have been
+     * generated so far.
+     *
+     * @return the number of generated chunks
+     */
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * This method returns Result.LOSE if a mine has been uncovered and
+     * Result.NONE otherwise. An unbounded board cannot be won.
+     *
+     * @return the state of the Minesweeper game outcome
+     */
+    public Grid.Result getResult() {
+        return lost ? Grid.Result.LOSE : Grid.Result.NONE;
+    }
+
+    public synchronized void addGridListener(GridListener listener) {
+		GridListener[] current = listeners;
+		GridListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+		listeners = updated;
+    }
+
+    public synchronized void removeGridListener(GridListener listener) {
+		GridListener[] current = listeners;
+		for(int i = 0; i < current.length; i++) {
+			if(current[i] == listener) {
+				GridListener[] updated = new GridListener[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				listeners = updated;
+				return;
+			}
+		}
+    }
+
+    /**
+     * This method returns the type of the location at (row, col).
+     * Locations in chunks that have not been generated are covered.
+     *
+     * @param row
+     * @param col
+     * @return the type of the location at (row, col)
+     */
+    public Location.Type getType(int row, int col) {
+		Chunk chunk = chunks.get(key(row >> CHUNK_BITS, col >> CHUNK_BITS));
+		if(chunk == null) {
+			return Location.Type.COVERED;
+		}
+		return Location.typeOf(chunk.cells[offset(row, col)]);
+    }
+
+    /**
+     * This method returns true if there is a mine at (row, col),
+     * generating its chunk if needed.
+     *
+     * @param row
+     * @param col
+     * @return whether (row, col) has a mine
+     */
+    public boolean hasMine(int row, int col) {
+        return (chunk(row >> CHUNK_BITS, col >> CHUNK_BITS).cells[offset(row, col)] & Location.MINE) != 0;
+    }
+
+    /**
+     * This method returns the hint at (row, col), generating its chunk
+     * and hints if needed.
+     *
+     * @param row
+     * @param col
+     * @return the number of mines adjacent to (row, col)
+     */
+    public int getHint(int row, int col) {
+        return hintedChunk(row >> CHUNK_BITS, col >> CHUNK_BITS).cells[offset(row, col)] & Location.HINT_MASK;
+    }
+
+    /**
+     * This method returns the packed cell at (row, col), with its hint,
+     * for a Region to read.
+     *
+     * @param row
+     * @param col
+     * @return the packed cell
+     */
+    int cellAt(int row, int col) {
+        return hintedChunk(row >> CHUNK_BITS, col >> CHUNK_BITS).cells[offset(row, col)];
+    }
+
+    public boolean isFlagAt(int row, int col) {
+        return getType(row, col) == Location.Type.FLAGGED;
+    }
+
+    /**
+     * This method places a flag at (row, col) if it is currently
+     * covered, and calls `onFlag(row, col)` on every GridListener.
+     *
+     * @param row
+     * @param col
+     */
+    public void placeFlagAt(int row, int col) {
+		byte[] cells = chunk(row >> CHUNK_BITS, col >> CHUNK_BITS).cells;
+		int i = offset(row, col);
+		if((cells[i] & Location.TYPE_MASK) == 0) {
+			cells[i] |= Location.FLAGGED;
+			GridListener[] current = listeners;
+			for(int l = 0; l < current.length; l++) {
+				current[l].onFlag(row, col);
+			}
+		}
+    }
+
+    /**
+     * This method removes a flag at (row, col) if it is currently
+     * flagged, and calls `onUnflag(row, col)` on every GridListener.
+     *
+     * @param row
+     * @param col
+     */
+    public void removeFlagAt(int row, int col) {
+		if(isFlagAt(row, col)) {
+			byte[] cells = chunk(row >> CHUNK_BITS, col >> CHUNK_BITS).cells;
+			int i = offset(row, col);
+			cells[i] &= ~Location.TYPE_MASK;
+			GridListener[] current = listeners;
+			for(int l = 0; l < current.length; l++) {
+				current[l].onUnflag(row, col);
+			}
+		}
+    }
+
+    /**
+     * This method uncovers (row, col) if it is currently covered. If
+     * the location has a mine the game is lost and every GridListener
+     * is told with `onMine`. Otherwise the open region around it is
+     * uncovered without recursion, across chunk borders, up to
+     * `cascadeLimit` locations, and all of them are reported in a
+     * single `onRegion` call. Uncovering a location that is already
+     * uncovered, with a hint of 0, opens whatever is still covered
+     * around it in the same way, which carries on a cascade that was
+     * cut off.
+     *
+     * @param row
+     * @param col
+     */
+    public void uncoverAt(int row, int col) {
+		byte[] cells = hintedChunk(row >> CHUNK_BITS, col >> CHUNK_BITS).cells;
+		int i = offset(row, col);
+		GridListener[] current = listeners;
+		int size = 0;
+		if((cells[i] & Location.TYPE_MASK) == Location.UNCOVERED && (cells[i] & (Location.MINE | Location.HINT_MASK)) == 0) {
+			size = expand(row, col, size);
+		}
+		else if((cells[i] & Location.TYPE_MASK) != 0) {
+			return;
+		}
+		else {
+			cells[i] |= Location.UNCOVERED;
+			if((cells[i] & Location.MINE) != 0) {
+				lost = true;
+				for(int l = 0; l < current.length; l++) {
+					current[l].onMine(row, col);
+				}
+				return;
+			}
+			queue[size++] = pack(row, col);
+		}
+		for(int head = 0; head < size; head++) {
+			int r = (int)(queue[head] >> 32);
+			int c = (int)queue[head];
+			if((hintedChunk(r >> CHUNK_BITS, c >> CHUNK_BITS).cells[offset(r, c)] & Location.HINT_MASK) == 0) {
+				size = expand(r, c, size);
+			}
+		}
+		if(size == 0) {
+			return;
+		}
+		regionView.set(queue, size);
+		for(int l = 0; l < current.length; l++) {
+			current[l].onRegion(regionView);
+		}
+    }
+
+    /**
+     * This method uncovers the covered neighbors of (row, col) that have
+     * no mine and appends them to the queue, until the queue holds
+     * `cascadeLimit` locations.
+     *
+     * @param row
+     * @param col
+     * @param size the number of locations in the queue
+     * @return the new number of locations in the queue
+     */
+    private int expand(int row, int col, int size) {
+		for(int nr = row - 1; nr <= row + 1 && size < cascadeLimit; nr++) {
+			for(int nc = col - 1; nc <= col + 1 && size < cascadeLimit; nc++) {
+				byte[] neighbor = hintedChunk(nr >> CHUNK_BITS, nc >> CHUNK_BITS).cells;
+				int n = offset(nr, nc);
+				if((neighbor[n] & (Location.TYPE_MASK | Location.MINE)) == 0) {
+					neighbor[n] |= Location.UNCOVERED;
+					if(size == queue.length) {
+						queue = Arrays.copyOf(queue, size * 2);
+					}
+					queue[size++] = pack(nr, nc);
+				}
+			}
+		}
+        return size;
+    }
+
+    /**
+     * This method returns the chunk at the given chunk coordinates,
+     * creating it and placing its mines if it does not exist yet.
+     * The mines are placed with Floyd's sampling algorithm, driven by
+     * a generator seeded from the board seed and the coordinates.
+     *
+     * @param chunkRow
+     * @param chunkCol
+     * @return the chunk
+     */
+    private Chunk chunk(int chunkRow, int chunkCol) {
+		long key = key(chunkRow, chunkCol);
+		Chunk chunk = chunks.get(key);
+		if(chunk == null) {
+			chunk = new Chunk();
+			Random random = new Random(mix(seed ^ mix(key)));
+			for(int j = CHUNK_CELLS - minesPerChunk; j < CHUNK_CELLS; j++) {
+				int t = random.nextInt(j + 1);
+				if((chunk.cells[t] & Location.MINE) != 0) {
+					t = j;
+				}
+				chunk.cells[t] |= Location.MINE;
+			}
+			chunks.put(key, chunk);
+		}
+		return chunk;
+    }
+
+    /**
+     * This method returns the chunk at the given chunk coordinates with
+     * its hints filled in. The mines of the chunk and of its eight
+     * neighbors are copied into a plane padded by one location on
+     * every side, and each hint is the sum of its 3-by-3 window.
+     *
+     * @param chunkRow
+     * @param chunkCol
+     * @return the chunk, with hints
+     */
+    private Chunk hintedChunk(int chunkRow, int chunkCol) {
+		Chunk chunk = chunk(chunkRow, chunkCol);
+		if(chunk.hinted) {
+			return chunk;
+		}
+		int side = CHUNK_SIZE + 2;
+		byte[] plane = new byte[side * side];
+		for(int dr = -1; dr <= 1; dr++) {
+			for(int dc = -1; dc <= 1; dc++) {
+				byte[] source = chunk(chunkRow + dr, chunkCol + dc).cells;
+				int fromRow = dr < 0 ? CHUNK_SIZE - 1 : 0;
+				int toRow = dr > 0 ? 1 : CHUNK_SIZE;
+				int fromCol = dc < 0 ? CHUNK_SIZE - 1 : 0;
+				int toCol = dc > 0 ? 1 : CHUNK_SIZE;
+				for(int r = fromRow; r < toRow; r++) {
+					for(int c = fromCol; c < toCol; c++) {
+						int pr = r + 1 + dr * CHUNK_SIZE;
+						int pc = c + 1 + dc * CHUNK_SIZE;
+						plane[pr * side + pc] = (byte)((source[(r << CHUNK_BITS) + c] >> Location.MINE_SHIFT) & 1);
+					}
+				}
+			}
+		}
+		for(int r = 0; r < CHUNK_SIZE; r++) {
+			for(int c = 0; c < CHUNK_SIZE; c++) {
+				int center = (r + 1) * side + c + 1;
+				int hint = plane[center - side - 1] + plane[center - side] + plane[center - side + 1]
+				         + plane[center - 1] + plane[center + 1]
+				         + plane[center + side - 1] + plane[center + side] + plane[center + side + 1];
+				int i = (r << CHUNK_BITS) + c;
+				chunk.cells[i] = (byte)((chunk.cells[i] & ~Location.HINT_MASK) | hint);
+			}
+		}
+		chunk.hinted = true;
+		return chunk;
+    }
+
+    private static int offset(int row, int col) {
+        return ((row & CHUNK_MASK) << CHUNK_BITS) | (col & CHUNK_MASK);
+    }
+
+    private static long key(int chunkRow, int chunkCol) {
+        return pack(chunkRow, chunkCol);
+    }
+
+    private static long pack(int high, int low) {
+        return ((long)high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * This method scrambles the bits of a 64-bit value (the finalizer
+     * of the SplitMix64 generator), so that neighboring chunks get
+     * unrelated seeds.
+     *
+     * @param z the value to scramble
+     * @return the scrambled value
+     */
+    private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,454 @@
+package edu.jsu.mcis;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * This class is a Grid that several threads can play at once, for
+ * cooperative games where many players act on one board. It takes no
+ * locks. Every change of type is a compare-and-set on the packed byte
+ * of the location (see Location), so of several threads that try to
+ * flag or uncover the same covered location, exactly one succeeds and
+ * only that one reports it.
+ *
+ * Cascades started by different threads may run into each other. Each
+ * location is claimed by whichever cascade uncovers it first, and is
+ * reported in that cascade's region only, so no location is ever
+ * reported twice. The counters behind the result are atomic, and the
+ * result itself moves away from Result.NONE exactly once: the thread
+ * that uncovers the first mine, or the last safe location, decides the
+ * game and is the only one to tell the ResultListeners.
+ *
+ * Listeners are called on whichever thread made the change, so they
+ * must be thread-safe themselves. `reset()` must not overlap with any
+ * other call.
+ */
+public class ConcurrentGrid extends Grid {
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    /**
+     * This class holds the per-thread cascade buffer and region view.
+     */
+    private static final class Scratch {
+        private int[] region = new int[64];
+        private Region view;
+    }
+
+    private final AtomicInteger safeUncovered;
+    private final AtomicInteger flagsPlaced;
+    private final AtomicReference<Result> result;
+    private final ThreadLocal<Scratch> scratch;
+
+    public ConcurrentGrid(int width, int height, int mines) {
+		this(width, height, mines, new Random());
+    }
+
+    /**
+     * This constructor initializes the grid as in Grid, with every
+     * location covered.
+     *
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @param random the pseudorandom number generator
+     */
+    public ConcurrentGrid(int width, int height, int mines, Random random) {
+		super(width, height, mines, random);
+		safeUncovered = new AtomicInteger();
+		flagsPlaced = new AtomicInteger();
+		result = new AtomicReference<>(initialResult());
+		scratch = ThreadLocal.withInitial(Scratch::new);
+    }
+
+    @Override
+    public void reset() {
+		super.reset();
+		safeUncovered.set(0);
+		flagsPlaced.set(0);
+		Result initial = initialResult();
+		if(result.getAndSet(initial) != initial) {
+			fireResult(initial);
+		}
+    }
+
+    /**
+     * This method returns the result of a fully covered grid: a win
+     * if every location is a mine, and no result otherwise.
+     *
+     * @return the result before any move
+     */
+    private Result initialResult() {
+        return getMines() == getWidth() * getHeight() ? Result.WIN : Result.NONE;
+    }
+
+    /**
+     * This method always throws: the actions of several threads have
+     * no single order to undo them in.
+     *
+     * @param enabled ignored
+     */
+    @Override
+    public void setUndoEnabled(boolean enabled) {
+		throw new UnsupportedOperationException("a ConcurrentGrid cannot undo");
+    }
+
+    /**
+     * This method always throws: a pooled board arrives with an opening
+     * uncovered, which the atomic counters would not know about.
+     *
+     * @param pool ignored
+     */
+    @Override
+    public void setBoardPool(BoardPool pool) {
+		throw new UnsupportedOperationException("a ConcurrentGrid cannot use a BoardPool");
+    }
+
+    /**
+     * This method always throws: a RegionIndex is updated in place,
+     * which several threads cannot do at once without locking.
+     *
+     * @param enabled ignored
+     */
+    @Override
+    public void setRegionIndexEnabled(boolean enabled) {
+		throw new UnsupportedOperationException("a ConcurrentGrid cannot keep a RegionIndex");
+    }
+
+    /**
+     * This method applies the moves of the batch one at a time, through
+     * the atomic moves of this class. Other threads may act in between,
+     * so the moves are reported one by one, as they happen, rather than
+     * as one region.
+     *
+     * @param batch the moves to apply
+     * @return the result after the last move
+     */
+    @Override
+    public Result apply(MoveBatch batch) {
+		for(int i = 0; i < batch.size(); i++) {
+			MoveJournal.apply(this, batch.getOp(i), batch.getRow(i), batch.getCol(i));
+		}
+        return getResult();
+    }
+
+    @Override
+    public Result getResult() {
+		GridMetrics metrics = GridMetrics.active();
+		if(metrics == null) {
+			return result.get();
+		}
+		long start = System.nanoTime();
+		Result current = result.get();
+		metrics.resultRead(System.nanoTime() - start);
+        return current;
+    }
+
+    @Override
+    public int getFlagCount() {
+        return flagsPlaced.get();
+    }
+
+    @Override
+    int cellAt(int index) {
+        return (byte)CELLS.getVolatile(cellArray(), index);
+    }
+
+    @Override
+    public boolean isFlagAt(int row, int col) {
+        return isLegalIndex(row, col) && (cellAt(row * getWidth() + col) & Location.TYPE_MASK) == Location.FLAGGED;
+    }
+
+    /**
+     * This method flags (row, col) if it is a legal index and is still
+     * covered when the flag is set, and then calls `onFlag` on every
+     * GridListener.
+     *
+     * @param row
+     * @param col
+     */
+    @Override
+    public void placeFlagAt(int row, int col) {
+		if(isLegalIndex(row, col) && transition(row * getWidth() + col, 0, Location.FLAGGED)) {
+			flagsPlaced.incrementAndGet();
+			GridMetrics metrics = GridMetrics.active();
+			long start = metrics == null ? 0 : System.nanoTime();
+			GridListener[] current = gridListeners();
+			for(int i = 0; i < current.length; i++) {
+				current[i].onFlag(row, col);
+			}
+			if(metrics != null) {
+				metrics.flagged(true, System.nanoTime() - start);
+			}
+		}
+    }
+
+    /**
+     * This method removes the flag at (row, col) if it is a legal index
+     * and is still flagged when the flag is removed, and then calls
+     * `onUnflag` on every GridListener.
+     *
+     * @param row
+     * @param col
+     */
+    @Override
+    public void removeFlagAt(int row, int col) {
+		if(isLegalIndex(row, col) && transition(row * getWidth() + col, Location.FLAGGED, 0)) {
+			flagsPlaced.decrementAndGet();
+			GridMetrics metrics = GridMetrics.active();
+			long start = metrics == null ? 0 : System.nanoTime();
+			GridListener[] current = gridListeners();
+			for(int i = 0; i < current.length; i++) {
+				current[i].onUnflag(row, col);
+			}
+			if(metrics != null) {
+				metrics.flagged(false, System.nanoTime() - start);
+			}
+		}
+    }
+
+    /**
+     * This method uncovers (row, col) if it is a legal index and is
+     * still covered when it is claimed. A mine loses the game, if it
+     * has not already been decided. Otherwise the open region around
+     * the location is uncovered as in Grid, except that only the
+     * locations this call claims are part of its region.
+     *
+     * @param row
+     * @param col
+     */
+    @Override
+    public void uncoverAt(int row, int col) {
+		int index = row * getWidth() + col;
+		if(isLegalIndex(row, col) == false || transition(index, 0, Location.UNCOVERED) == false) {
+			return;
+		}
+		GridMetrics metrics = GridMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		GridMetrics.UncoverEvent event = metrics == null ? null : metrics.beginUncover();
+		GridListener[] current = gridListeners();
+		if((cellAt(index) & Location.MINE) != 0) {
+			long dispatched = metrics == null ? 0 : System.nanoTime();
+			for(int i = 0; i < current.length; i++) {
+				current[i].onMine(row, col);
+			}
+			if(metrics != null) {
+				long end = System.nanoTime();
+				metrics.uncovered(event, row, col, 1, true, end - start, end - dispatched);
+			}
+			decide(Result.LOSE);
+			return;
+		}
+		Scratch local = scratch.get();
+		if(local.view == null) {
+			local.view = new Region(this);
+		}
+		int size = cascade(local, index);
+		local.view.set(local.region, size);
+		long dispatched = metrics == null ? 0 : System.nanoTime();
+		for(int i = 0; i < current.length; i++) {
+			current[i].onRegion(local.view);
+		}
+		if(metrics != null) {
+			long end = System.nanoTime();
+			metrics.uncovered(event, row, col, size, false, end - start, end - dispatched);
+		}
+		if(safeUncovered.addAndGet(size) == getWidth() * getHeight() - getMines()) {
+			decide(Result.WIN);
+		}
+    }
+
+    /**
+     * This method chords at (row, col) as in Grid, claiming each covered
+     * neighbor with a compare-and-set. Only the neighbors this call
+     * claims, and the regions opened from them, are part of its region.
+     * The flags are counted once, before anything is claimed, so a flag
+     * that another thread changes at the same moment may or may not be
+     * counted.
+     *
+     * @param row
+     * @param col
+     */
+    @Override
+    public void chordAt(int row, int col) {
+		if(isLegalIndex(row, col) == false) {
+			return;
+		}
+		int width = getWidth();
+		int height = getHeight();
+		int cell = cellAt(row * width + col);
+		int hint = cell & Location.HINT_MASK;
+		if((cell & (Location.TYPE_MASK | Location.MINE)) != Location.UNCOVERED || hint == 0) {
+			return;
+		}
+		int flagged = 0;
+		for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+			for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+				if((cellAt(r * width + c) & Location.TYPE_MASK) == Location.FLAGGED) {
+					flagged++;
+				}
+			}
+		}
+		if(flagged != hint) {
+			return;
+		}
+		GridMetrics metrics = GridMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		GridMetrics.UncoverEvent event = metrics == null ? null : metrics.beginUncover();
+		Scratch local = scratch.get();
+		if(local.view == null) {
+			local.view = new Region(this);
+		}
+		int size = 0;
+		int minesHit = 0;
+		for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+			for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+				int neighbor = r * width + c;
+				if(transition(neighbor, 0, Location.UNCOVERED)) {
+					local.region[size++] = neighbor;
+					minesHit += (cellAt(neighbor) >> Location.MINE_SHIFT) & 1;
+				}
+			}
+		}
+		if(size == 0) {
+			return;
+		}
+		size = expand(local, 0, size);
+		local.view.set(local.region, size);
+		long dispatched = metrics == null ? 0 : System.nanoTime();
+		GridListener[] current = gridListeners();
+		for(int i = 0; i < current.length; i++) {
+			current[i].onRegion(local.view);
+		}
+		if(metrics != null) {
+			long end = System.nanoTime();
+			metrics.uncovered(event, row, col, size, minesHit > 0, end - start, end - dispatched);
+		}
+		int safe = safeUncovered.addAndGet(size - minesHit);
+		if(minesHit > 0) {
+			decide(Result.LOSE);
+		}
+		else if(safe == width * height - getMines()) {
+			decide(Result.WIN);
+		}
+    }
+
+    /**
+     * This method opens the region around a location this thread has
+     * just uncovered, breadth first, claiming each neighbor with a
+     * compare-and-set so that a neighbor claimed by another cascade is
+     * left to that cascade.
+     *
+     * @param local this thread's scratch space
+     * @param start the flat index of the uncovered location
+     * @return the number of locations this thread uncovered
+     */
+    private int cascade(Scratch local, int start) {
+		local.region[0] = start;
+		return expand(local, 0, 1);
+    }
+
+    /**
+     * This method runs the cascade over this thread's region queue from
+     * `head`, where the first `size` entries are locations this thread
+     * has just claimed. Mines and locations with a hint other than 0
+     * are not expanded.
+     *
+     * @param local this thread's scratch space
+     * @param head the first queued location not yet expanded
+     * @param size the number of queued locations
+     * @return the number of locations this thread uncovered
+     */
+    private int expand(Scratch local, int head, int size) {
+		int width = getWidth();
+		int height = getHeight();
+		for(; head < size; head++) {
+			int index = local.region[head];
+			if((cellAt(index) & (Location.HINT_MASK | Location.MINE)) != 0) {
+				continue;
+			}
+			int row = index / width;
+			int col = index % width;
+			for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+				for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+					int neighbor = r * width + c;
+					if((cellAt(neighbor) & Location.MINE) == 0 && transition(neighbor, 0, Location.UNCOVERED)) {
+						if(size == local.region.length) {
+							local.region = Arrays.copyOf(local.region, Math.min(size * 2, width * height));
+						}
+						local.region[size++] = neighbor;
+					}
+				}
+			}
+		}
+		return size;
+    }
+
+    /**
+     * This method changes the type of a location from `from` to `to`
+     * if it is `from` now, leaving the mine and hint bits alone.
+     *
+     * @param index the flat index of the location
+     * @param from the expected type bits
+     * @param to the new type bits
+     * @return whether this call made the change
+     */
+    private boolean transition(int index, int from, int to) {
+		byte[] cells = cellArray();
+		while(true) {
+			byte cell = (byte)CELLS.getVolatile(cells, index);
+			if((cell & Location.TYPE_MASK) != from) {
+				return false;
+			}
+			byte updated = (byte)((cell & ~Location.TYPE_MASK) | to);
+			if(CELLS.compareAndSet(cells, index, cell, updated)) {
+				return true;
+			}
+		}
+    }
+
+    /**
+     * This method changes a packed cell on behalf of a Location view,
+     * keeping the counters in step, and decides the game if that ends
+     * it.
+     *
+     * @param index the flat index (row * width + col)
+     * @param value the new packed cell
+     */
+    @Override
+    void updateCell(int index, int value) {
+		byte[] cells = cellArray();
+		byte cell;
+		do {
+			cell = (byte)CELLS.getVolatile(cells, index);
+		} while(CELLS.compareAndSet(cells, index, cell, (byte)value) == false);
+		int before = cell & (Location.TYPE_MASK | Location.MINE);
+		int after = value & (Location.TYPE_MASK | Location.MINE);
+		if(before != after) {
+			flagsPlaced.addAndGet(((after & Location.TYPE_MASK) == Location.FLAGGED ? 1 : 0) - ((before & Location.TYPE_MASK) == Location.FLAGGED ? 1 : 0));
+			int safe = safeUncovered.addAndGet((after == Location.UNCOVERED ? 1 : 0) - (before == Location.UNCOVERED ? 1 : 0));
+			if(after == (Location.UNCOVERED | Location.MINE)) {
+				decide(Result.LOSE);
+			}
+			else if(safe == getWidth() * getHeight() - getMines()) {
+				decide(Result.WIN);
+			}
+		}
+    }
+
+    /**
+     * This method settles the game on `outcome` if it has not been
+     * settled yet, and tells the ResultListeners if it was this call
+     * that settled it.
+     *
+     * @param outcome Result.WIN or Result.LOSE
+     */
+    private void decide(Result outcome) {
+		if(result.compareAndSet(Result.NONE, outcome)) {
+			fireResult(outcome);
+		}
+    }
+}
@@ -0,0 +1,364 @@
+package edu.jsu.mcis;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * This class serves Minesweeper games over TCP on the loopback
+ * interface, one game per connection. Each connection is a session
+ * with its own Grid and is served by its own thread: a virtual thread
+ * when the JVM has them, and a pooled platform thread otherwise.
+ *
+ * The protocol is line based. The client sends commands
+ *
+ *     NEW width height mines [seed]
+ *     U row col        (uncover)
+ *     F row col        (flag)
+ *     R row col        (remove flag)
+ *     C row col        (chord)
+ *     B op row col ... (a batch of U, F, R, and C moves)
+ *     QUIT
+ *
+ * and the server answers every command with the events it caused, one
+ * line per event, followed by a line holding `OK` (or `ERR reason` if
+ * the command was not understood). Events use the same `row:col:info`
+ * entries as the Grid's string messages: `info` is a hint, `mine`,
+ * `flag`, `unflag`, or `cover`. A region opened by one uncover is a
+ * single line of space-separated entries, as is everything opened by
+ * one chord, and everything changed by one batch. When the game is
+ * won or lost, one `WIN` or `LOSE` line follows the event that ended
+ * it, however many moves of a batch that took. A line longer than
+ * MAX_LINE bytes is answered with `ERR line too long`, and the session
+ * is closed.
+ *
+ * A session that has not started a game holds no Grid, and a game
+ * holds one byte per location and no Swing objects, so idle sessions
+ * cost little more than their socket and small I/O buffers.
+ */
+public class GameServer implements Closeable {
+    public static final int MAX_CELLS = 1 << 20;
+    public static final int MAX_LINE = 512;
+    private static final int IN_BUFFER = 256;
+    private static final int OUT_BUFFER = 1024;
+    private static final int[] BATCH_OPS = {MoveJournal.UNCOVER, MoveJournal.FLAG, MoveJournal.UNFLAG, MoveJournal.CHORD};
+
+    /**
+     * This class is one connection and the game played on it.
+     */
+    private class Session implements GridListener, Grid.ResultListener, Runnable {
+        private final Socket socket;
+        private final MoveBatch batch;
+        private final StringBuilder line;
+        private boolean tooLong;
+        private Writer out;
+        private Grid grid;
+
+        Session(Socket socket) {
+			this.socket = socket;
+			batch = new MoveBatch();
+			line = new StringBuilder();
+        }
+
+        public void run() {
+			sessions.incrementAndGet();
+			try(Socket s = socket;
+			    InputStream in = new BufferedInputStream(s.getInputStream(), IN_BUFFER)) {
+				out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII), OUT_BUFFER);
+				String command;
+				while((command = readLine(in)) != null) {
+					if(tooLong) {
+						out.write("ERR line too long\n");
+						out.flush();
+						break;
+					}
+					String[] parts = command.trim().split(" +");
+					if(parts[0].equals("QUIT")) {
+						break;
+					}
+					String error = execute(parts);
+					out.write(error == null ? "OK" : "ERR " + error);
+					out.write('\n');
+					out.flush();
+				}
+			}
+			catch(IOException | UncheckedIOException e) {
+				// The client went away; there is nobody to tell.
+			}
+			finally {
+				sessions.decrementAndGet();
+				open.remove(socket);
+			}
+        }
+
+        /**
+         * This method reads one line of ASCII text, without its line
+         * terminator, reading no further than MAX_LINE bytes. If the 
+         * line is longer than that, `tooLong` is set and the part read
+         * so far is returned.
+         *
+         * @param in the input of the session
+         * @return the line, or null at the end of the stream
+         * @throws IOException if the input cannot be read
+         */
+        private String readLine(InputStream in) throws IOException {
+			line.setLength(0);
+			int b = in.read();
+			if(b < 0) {
+				return null;
+			}
+			while(b >= 0 && b != '\n') {
+				if(line.length() == MAX_LINE) {
+					tooLong = true;
+					break;
+				}
+				if(b != '\r') {
+					line.append((char)b);
+				}
+				b = in.read();
+			}
+            return line.toString();
+        }
+
+        /**
+         * This method carries out one command.
+         *
+         * @param parts the words of the command
+         * @return null on success, or the reason it failed
+         */
+        private String execute(String[] parts) {
+			try {
+				if(parts[0].equals("NEW") && (parts.length == 4 || parts.length == 5)) {
+					int width = Integer.parseInt(parts[1]);
+					int height = Integer.parseInt(parts[2]);
+					int mines = Integer.parseInt(parts[3]);
+					if(width <= 0 || height <= 0 || (long)width * height > MAX_CELLS) {
+						return "board too large";
+					}
+					Random random = parts.length == 5 ? new Random(Long.parseLong(parts[4])) : new Random();
+					grid = new Grid(width, height, mines, random);
+					grid.addGridListener(this);
+					grid.addResultListener(this);
+					return null;
+				}
+				else if(parts[0].equals("B") && parts.length % 3 == 1) {
+					if(grid == null) {
+						return "no game";
+					}
+					batch.clear();
+					for(int i = 1; i < parts.length; i += 3) {
+						int op = parts[i].length() == 1 ? "UFRC".indexOf(parts[i].charAt(0)) : -1;
+						if(op < 0) {
+							return "unknown move " + parts[i];
+						}
+						batch.add(BATCH_OPS[op], Integer.parseInt(parts[i + 1]), Integer.parseInt(parts[i + 2]));
+					}
+					grid.apply(batch);
+					return null;
+				}
+				else if(parts.length == 3 && parts[0].length() == 1 && "UFRC".indexOf(parts[0].charAt(0)) >= 0) {
+					if(grid == null) {
+						return "no game";
+					}
+					int row = Integer.parseInt(parts[1]);
+					int col = Integer.parseInt(parts[2]);
+					if(parts[0].equals("U")) {
+						grid.uncoverAt(row, col);
+					}
+					else if(parts[0].equals("F")) {
+						grid.placeFlagAt(row, col);
+					}
+					else if(parts[0].equals("C")) {
+						grid.chordAt(row, col);
+					}
+					else {
+						grid.removeFlagAt(row, col);
+					}
+					return null;
+				}
+				return "unknown command";
+			}
+			catch(IllegalArgumentException e) {
+				return "bad arguments";
+			}
+        }
+
+        public void onUncovered(int row, int col, int hint) {
+			event(row, col, String.valueOf(hint));
+        }
+
+        public void onMine(int row, int col) {
+			event(row, col, "mine");
+        }
+
+        public void onFlag(int row, int col) {
+			event(row, col, "flag");
+        }
+
+        public void onUnflag(int row, int col) {
+			event(row, col, "unflag");
+        }
+
+        public void onCovered(int row, int col) {
+			event(row, col, "cover");
+        }
+
+        public void onRegion(Region region) {
+			try {
+				for(int i = 0; i < region.size(); i++) {
+					if(i > 0) {
+						out.write(' ');
+					}
+					entry(region.getRow(i), region.getCol(i));
+					if(region.isCovering()) {
+						out.write("cover");
+					}
+					else if(region.getType(i) == Location.Type.FLAGGED) {
+						out.write("flag");
+					}
+					else if(region.getType(i) == Location.Type.COVERED) {
+						out.write("unflag");
+					}
+					else if(region.hasMine(i)) {
+						out.write("mine");
+					}
+					else {
+						out.write(String.valueOf(region.getHint(i)));
+					}
+				}
+				out.write('\n');
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+        }
+
+        public void resultChanged(Grid g, Grid.Result result) {
+			if(result != Grid.Result.NONE) {
+				try {
+					out.write(result.toString());
+					out.write('\n');
+				}
+				catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+        }
+
+        private void event(int row, int col, String info) {
+			try {
+				entry(row, col);
+				out.write(info);
+				out.write('\n');
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+        }
+
+        private void entry(int row, int col) throws IOException {
+			out.write(String.valueOf(row));
+			out.write(':');
+			out.write(String.valueOf(col));
+			out.write(':');
+        }
+    }
+
+    private final ServerSocket server;
+    private final ExecutorService threads;
+    private final AtomicInteger sessions;
+    private final Set<Socket> open;
+
+    /**
+     * This constructor opens the server socket on the loopback
+     * interface. Nothing is accepted until `start` is called.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the socket cannot be opened
+     */
+    public GameServer(int port) throws IOException {
+		server = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+		threads = newThreadPerTaskExecutor();
+		sessions = new AtomicInteger();
+		open = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * This method returns the number of connections being served.
+     *
+     * @return the number of open sessions
+     */
+    public int getSessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * This method starts accepting connections on a thread of its own
+     * and returns at once.
+     */
+    public void start() {
+		Thread acceptor = new Thread(() -> {
+			try {
+				while(true) {
+					Socket socket = server.accept();
+					socket.setTcpNoDelay(true);
+					open.add(socket);
+					threads.execute(new Session(socket));
+				}
+			}
+			catch(SocketException e) {
+				// The server socket was closed.
+			}
+			catch(IOException e) {
+				System.err.println("The server stopped accepting: " + e.getMessage());
+			}
+		}, "GameServer-accept");
+		acceptor.setDaemon(true);
+		acceptor.start();
+    }
+
+    /**
+     * This method stops accepting connections and closes every open
+     * session.
+     */
+    public void close() throws IOException {
+		server.close();
+		for(Socket socket : open) {
+			socket.close();
+		}
+		threads.shutdown();
+    }
+
+    /**
+     * This method returns an executor that runs each task on a new
+     * virtual thread if the JVM supports them (Java 21 and later), and
+     * on a cached pool of daemon platform threads otherwise.
+     *
+     * @return an executor with one thread per task
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch(ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+    }
+}
@@ -1,33 +1,125 @@
 package edu.jsu.mcis;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * This class represents the grid in Minesweeper. It is composed of a
- * two-dimensional array of Location objects. It must initialize those 
- * locations with the correct hints and mine placement (which means it
- * also needs to know how many mines to place). It places mines 
+ * flat array of packed cells, one byte per location, stored in row-major
+ * order (the cell at (row, col) lives at index row * width + col). See
+ * the Location class for the layout of each byte. It must initialize 
+ * those locations with the correct hints and mine placement (which 
+ * means it also needs to know how many mines to place). It places mines 
  * randomly using the specified pseudorandom number generator.
  *
  * This class also implements a part of the Observer pattern. It is
- * the Observable component. That means that other objects can 
- * register themselves as observers of the Grid. It will then update
- * all observers whenever "something interesting" happens (e.g., 
- * when flags are placed or locations are uncovered). It communicates
- * with the observers by means of strings of the following form:
+ * the subject. That means that other objects can register themselves
+ * as GridListeners of the Grid. It will then call all listeners 
+ * whenever "something interesting" happens (e.g., when flags are 
+ * placed or locations are uncovered), using typed callbacks such as
+ * `onFlag(row, col)` and `onUncovered(row, col, hint)`. A whole region
+ * opened by one uncover is delivered as a single `onRegion` call, and
+ * so is everything opened by one chord (see `chordAt`).
+ *
+ * For backward compatibility, java.util.Observer objects can still be
+ * registered with `addObserver`. They receive strings of the form
  * 
  *     row:col:info
  *
  * Possible values for `info` are `flag`, `unflag`, `mine`, and an 
  * integer value in the range [0, 8] representing the hint at the 
- * (`row`, `col`) location.
+ * (`row`, `col`) location. When one uncover opens a whole region, the
+ * message carries one `row:col:hint` entry per uncovered location,
+ * separated by single spaces. See the ObserverAdapter class.
+ *
+ * The outcome of the game is tracked incrementally. Every change to a
+ * cell adjusts running counts of uncovered safe locations, uncovered
+ * mines, and flags, so `getResult()` never has to scan the board.
+ * Objects that want to know when the outcome changes can register a
+ * ResultListener instead of polling.
+ *
+ * When undo is enabled, every uncover, flag, and unflag is recorded as
+ * a delta: the kind of action and the flat indices of the locations it
+ * changed, appended to one shared int array. Undoing or redoing an 
+ * action only touches those locations, so it costs time in proportion
+ * to the action (a whole cascade included), never to the size of the 
+ * board. Listeners hear about undone and redone actions through the 
+ * same events as any other change.
+ *
+ * By default the mines are placed as soon as the grid is created or
+ * reset. A grid created with Placement.SAFE_CELL or SAFE_AREA instead
+ * waits for the first uncover, and then places the mines anywhere but
+ * the uncovered location (or its 3-by-3 neighborhood), so the first
+ * click is never a mine. Until then no location has a mine or a hint,
+ * and `reset()` only clears the board.
+ *
+ * Bots and remote clients can apply many moves at once with 
+ * `apply(MoveBatch)`. The moves take effect in order, exactly as if 
+ * they were made one at a time, but the listeners hear about them only
+ * once, in a single region that holds every location whose type the
+ * batch changed, and the ResultListeners only hear the final result.
+ *
+ * A grid can also keep a RegionIndex, which counts the flagged, 
+ * uncovered, and covered locations of any rectangle in logarithmic 
+ * time. It is off by default, since it takes 8 bytes per location.
+ *
+ * A grid can also be given a BoardPool, and then takes the next board
+ * that can be solved without guessing from the pool on every reset,
+ * with its opening already uncovered. If the pool has none ready, the
+ * mines are placed as usual.
+ *
+ * Uncovers, flags, and reads of the result are timed and counted in
+ * GridMetrics while the metrics are enabled.
  */
-public class Grid extends Observable {
+public class Grid {
     public enum Result {NONE, WIN, LOSE};
     
-    private Location[][] location;
+    /**
+     * This enum tells when the mines are placed: right away, or at the
+     * first uncover, away from the uncovered location alone or from its
+     * whole neighborhood.
+     */
+    public enum Placement {IMMEDIATE, SAFE_CELL, SAFE_AREA};
+    
+    private static final int PARALLEL_HINT_CELLS = 1 << 20;
+    
+    /**
+     * This interface is implemented by objects that want to be told
+     * whenever the result of the game changes.
+     */
+    public interface ResultListener {
+        void resultChanged(Grid grid, Result result);
+    }
+    
+    private byte[] cells;
+    private int width;
+    private int height;
     private int mines;
     private Random random;
+    private Placement placement;
+    private boolean minesPlaced;
+    private BoardPool pool;
+    private int[] region;
+    private Region regionView;
+    private volatile GridListener[] listeners;
+    private ObserverAdapter observers;
+    private int safeUncovered;
+    private int minesUncovered;
+    private int flagsPlaced;
+    private Result result;
+    private List<ResultListener> resultListeners;
+    private boolean undoEnabled;
+    private int[] history;
+    private int[] actionStart;
+    private byte[] actionOp;
+    private int actionCount;
+    private int actionCursor;
+    private long[] batchSeen;
+    private int[] batchCells;
+    private byte[] batchTypes;
+    private RegionIndex regionIndex;
 
     public Grid() {
 		this(8, 8, 10);
@@ -50,16 +142,69 @@ public class Grid extends Observable {
      * @param random the pseudorandom number generator
      */
     public Grid(int width, int height, int mines, Random random) {
+		this(width, height, mines, random, Placement.IMMEDIATE);
+    }
+    
+    /**
+     * This constructor initializes the grid as above, except that with
+     * any placement but IMMEDIATE the mines and hints are left for the
+     * first uncover to place.
+     * 
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @param random the pseudorandom number generator
+     * @param placement when and where to place the mines
+     */
+    public Grid(int width, int height, int mines, Random random, Placement placement) {
+		this(width, height, mines, random, (byte[])null);
+		this.placement = placement;
+		if(placement == Placement.IMMEDIATE) {
+			placeMines();
+			placeHints();
+			minesPlaced = true;
+		}
+    }
+    
+    /**
+     * This constructor creates a grid around existing packed cells
+     * (see Location), for instance ones restored from a GridSnapshot.
+     * The array is used as it is, not copied, and the result counters
+     * are recounted from it. If `cells` is null, the grid starts out
+     * empty, and the caller must place the mines and hints.
+     * 
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @param random the generator used by later resets
+     * @param cells the packed cells in row-major order, or null
+     */
+    Grid(int width, int height, int mines, Random random, byte[] cells) {
+		if(width <= 0 || height <= 0 || mines < 0 || mines > (long)width * height) {
+			throw new IllegalArgumentException(width + "x" + height + " with " + mines + " mines");
+		}
 		this.random = random;
-		location = new Location[height][width];
+		this.width = width;
+		this.height = height;
 		this.mines = mines;
-		for(int r = 0; r < height; r++) {
-			for(int c = 0; c < width; c++) {
-				location[r][c] = new Location();
+		resultListeners = new CopyOnWriteArrayList<>();
+		listeners = new GridListener[0];
+		regionView = new Region(this);
+		placement = Placement.IMMEDIATE;
+		if(cells == null) {
+			this.cells = new byte[width * height];
+		}
+		else if(cells.length != width * height) {
+			throw new IllegalArgumentException(cells.length + " cells for " + width + "x" + height);
+		}
+		else {
+			this.cells = cells;
+			minesPlaced = true;
+			for(int i = 0; i < cells.length; i++) {
+				count(cells[i], 1);
 			}
 		}
-		placeMines();
-		placeHints();
+		result = countedResult();
     }
     
     /**
@@ -67,78 +212,256 @@ public class Grid extends Observable {
      * randomly reinitialized condition. All locations should be 
      * covered, and all mines should be placed randomly such that all 
      * mines are in unique locations. Hints should be calculated after 
-     * mines are placed.
+     * mines are placed. If the placement is deferred, the mines are 
+     * only placed by the next first uncover. A grid with a BoardPool
+     * adopts the pool's next ready board instead, if there is one.
      */
     public void reset() {
-		for(int r = 0; r < location.length; r++) {
-			for(int c = 0; c < location[r].length; c++) {
-				location[r][c].reset();
+		BoardPool.Board board = pool != null ? pool.take(width, height, mines) : null;
+		if(board != null) {
+			cells = board.cells;
+			safeUncovered = board.uncovered;
+			minesUncovered = 0;
+			flagsPlaced = 0;
+			minesPlaced = true;
+			clearHistory();
+			if(regionIndex != null) {
+				regionIndex.rebuild();
+			}
+			checkResult();
+			return;
+		}
+		Arrays.fill(cells, (byte)0);
+		safeUncovered = 0;
+		minesUncovered = 0;
+		flagsPlaced = 0;
+		clearHistory();
+		if(placement == Placement.IMMEDIATE) {
+			placeMines();
+			placeHints();
+		}
+		else {
+			minesPlaced = false;
+		}
+		if(regionIndex != null) {
+			regionIndex.rebuild();
+		}
+		checkResult();
+    }
+    
+    /**
+     * This method makes every later reset take its board from the pool,
+     * which is then told to start preparing boards of this size. A null
+     * pool makes resets generate boards as usual again. The current
+     * board is not changed.
+     * 
+     * @param pool the pool, or null
+     */
+    public void setBoardPool(BoardPool pool) {
+		this.pool = pool;
+		if(pool != null) {
+			pool.prepare(width, height, mines);
+		}
+    }
+    
+    /**
+     * This method starts or stops keeping a RegionIndex of the grid. 
+     * A new index is built from the cells as they are now, in time 
+     * linear in the number of locations, and is then kept up to date
+     * by every change.
+     * 
+     * @param enabled whether to keep an index
+     */
+    public void setRegionIndexEnabled(boolean enabled) {
+		if(enabled == false) {
+			regionIndex = null;
+		}
+		else if(regionIndex == null) {
+			regionIndex = new RegionIndex(this);
+		}
+    }
+    
+    /**
+     * This method returns the RegionIndex of the grid.
+     * 
+     * @return the index, or null if the grid does not keep one
+     */
+    public RegionIndex getRegionIndex() {
+        return regionIndex;
+    }
+    
+    public Placement getPlacement() {
+        return placement;
+    }
+    
+    /**
+     * This method returns false while a grid with deferred placement
+     * is waiting for its first uncover.
+     * 
+     * @return whether the mines have been placed
+     */
+    public boolean areMinesPlaced() {
+        return minesPlaced;
+    }
+    
+    /**
+     * This method makes a grid whose cells hold no mines yet wait for
+     * its first uncover to place them, for instance when a game saved
+     * before its first uncover is restored.
+     * 
+     * @param placement SAFE_CELL or SAFE_AREA
+     */
+    void deferPlacement(Placement placement) {
+		this.placement = placement;
+		minesPlaced = false;
+    }
+    
+    /**
+     * This method places the mines and hints of a grid with deferred
+     * placement, keeping the mines off (row, col) and, for SAFE_AREA,
+     * off its neighbors. If there are too many mines to leave all of
+     * those locations free, only (row, col) is kept free, or nothing
+     * if every location is a mine.
+     * 
+     * @param row 
+     * @param col 
+     */
+    private void placeMinesAround(int row, int col) {
+		int fromRow = Math.max(row - 1, 0);
+		int toRow = Math.min(row + 1, height - 1);
+		int fromCol = Math.max(col - 1, 0);
+		int toCol = Math.min(col + 1, width - 1);
+		int area = (toRow - fromRow + 1) * (toCol - fromCol + 1);
+		int[] excluded = new int[9];
+		int count = 0;
+		if(placement == Placement.SAFE_AREA && mines <= cells.length - area) {
+			for(int r = fromRow; r <= toRow; r++) {
+				for(int c = fromCol; c <= toCol; c++) {
+					excluded[count++] = r * width + c;
+				}
 			}
 		}
-		placeMines();
+		else if(mines < cells.length) {
+			excluded[count++] = row * width + col;
+		}
+		placeMines(excluded, count);
 		placeHints();
+		minesPlaced = true;
     }
     
     /**
      * This method should place all mines randomly in unique 
-     * locations.
+     * locations. It uses Floyd's sampling algorithm, which draws
+     * exactly one random number per pick and never retries, using
+     * the mine bits themselves as the set of cells picked so far.
+     * When more than half of the grid is mined, it instead fills the
+     * grid with mines and picks the safe locations, so the number of 
+     * draws is never more than half the number of locations. It is
+     * package-private so that the benchmarks can time it on its own.
      */
-    private void placeMines() {
-		int mineCount = 0;
-		for(int i = 0; i < mines; i++) {
-			while(mineCount == i) {
-				int r = random.nextInt(location.length);
-				int c = random.nextInt(location[0].length);
-				if(location[r][c].hasMine() == false) {
-					location[r][c].setMine(true);
-					mineCount++;
-				}
+    void placeMines() {
+		placeMines(new int[0], 0);
+    }
+    
+    /**
+     * This method places the mines as above, but never on the `count`
+     * excluded locations. The sampling runs over the other locations
+     * numbered 0 to total - count - 1: each location is its own number,
+     * except that an excluded location below total - count stands for
+     * one of the locations above it that is not excluded.
+     * 
+     * @param excluded the flat indices to keep free, in ascending order
+     * @param count the number of excluded locations
+     */
+    private void placeMines(int[] excluded, int count) {
+		int total = cells.length - count;
+		int[] stand = new int[count];
+		int next = total;
+		for(int i = 0; i < count && excluded[i] < total; i++) {
+			while(Arrays.binarySearch(excluded, 0, count, next) >= 0) {
+				next++;
+			}
+			stand[i] = next++;
+		}
+		boolean dense = mines > total / 2;
+		int picks = dense ? total - mines : mines;
+		if(dense) {
+			Arrays.fill(cells, (byte)Location.MINE);
+			for(int i = 0; i < count; i++) {
+				cells[excluded[i]] = 0;
+			}
+		}
+		for(int j = total - picks; j < total; j++) {
+			int t = random.nextInt(j + 1);
+			if(((cells[standIn(t, excluded, stand, count)] & Location.MINE) != 0) != dense) {
+				t = j;
+			}
+			cells[standIn(t, excluded, stand, count)] ^= Location.MINE;
+		}
+    }
+    
+    private static int standIn(int t, int[] excluded, int[] stand, int count) {
+		for(int i = 0; i < count && excluded[i] <= t; i++) {
+			if(excluded[i] == t) {
+				return stand[i];
 			}
 		}
+        return t;
     }
     
     /**
      * This method should set the hints for each location based on the
-     * adjacent mines.
-     */
-    private void placeHints() {
-		for(int r = 0; r < location.length; r++) {
-			for(int c = 0; c < location[r].length; c++) {
-				List<Location> neighbors = getNeighbors(r, c);
-				int hint = calculateHint(neighbors);
-				location[r][c].setHint(hint);
-			}
-		}
-    }
-    
-    /**
-     * This method returns a list of the adjacent neighbors of the 
-     * (row, col) location. This list could contain the following 
-     * numbers of elements:
-     *     0 => if (row, col) is not a legal index
-     *     3 => if (row, col) is a corner
-     *     5 => if (row, col) is along a side
-     *     8 => if (row, col) is an interior location
-     *
-     * @param row
-     * @param col
-     * @return a list of Location objects representing the adjacent neighbors of (row, col)
-     */
-    private List<Location> getNeighbors(int row, int col) {
-        List<Location> neighbors = new ArrayList<>();
-		
-		for(int i = -1; i <= 1; i++) {
-			for(int j = -1; j <= 1; j++) {
-				int r = row + i;
-				int c = col + j;
-				if(isLegalIndex(r, c)) {
-					if(row != r || col != c) {
-						neighbors.add(location[r][c]);
-					}
+     * adjacent mines. Large grids are split into bands of rows that
+     * are computed in parallel; each band only writes its own rows and
+     * only reads the mine bits of its neighbors, which never change
+     * here. It is package-private so that the benchmarks can time it
+     * on its own.
+     */
+    void placeHints() {
+		if(cells.length < PARALLEL_HINT_CELLS) {
+			placeHints(0, height);
+		}
+		else {
+			int bands = Math.min(height, ForkJoinPool.getCommonPoolParallelism() * 4);
+			IntStream.range(0, bands).parallel().forEach(b -> 
+				placeHints((int)((long)height * b / bands), (int)((long)height * (b + 1) / bands)));
+		}
+    }
+    
+    /**
+     * This method sets the hints for rows [fromRow, toRow). It works
+     * in two separable passes per row: first the mines in each column
+     * of the three-row window around the row are summed, then each 
+     * hint is the sum of three adjacent column sums minus the mine
+     * at the location itself. The column sums are kept in a single
+     * scratch array padded with a zero at each end, so no bounds 
+     * checks are needed and nothing is allocated per location.
+     * 
+     * @param fromRow the first row to set (inclusive)
+     * @param toRow the last row to set (exclusive)
+     */
+    private void placeHints(int fromRow, int toRow) {
+		int[] sums = new int[width + 2];
+		for(int r = fromRow; r < toRow; r++) {
+			int start = r * width;
+			int above = r > 0 ? start - width : -1;
+			int below = r < height - 1 ? start + width : -1;
+			for(int c = 0; c < width; c++) {
+				int sum = (cells[start + c] >> Location.MINE_SHIFT) & 1;
+				if(above >= 0) {
+					sum += (cells[above + c] >> Location.MINE_SHIFT) & 1;
 				}
+				if(below >= 0) {
+					sum += (cells[below + c] >> Location.MINE_SHIFT) & 1;
+				}
+				sums[c + 1] = sum;
+			}
+			for(int c = 0; c < width; c++) {
+				int cell = cells[start + c];
+				int hint = sums[c] + sums[c + 1] + sums[c + 2] - ((cell >> Location.MINE_SHIFT) & 1);
+				cells[start + c] = (byte)((cell & ~Location.HINT_MASK) | hint);
 			}
 		}
-        return neighbors;
     }
     
     /**
@@ -148,36 +471,21 @@ public class Grid extends Observable {
      * @param col 
      * @return whether (row, col) is a legal index
      */
-    private boolean isLegalIndex(int row, int col) {
+    boolean isLegalIndex(int row, int col) {
 		if(row >= 0 && col >= 0) {
-			if(location.length - row > 0 && location[0].length - col > 0) {
+			if(height - row > 0 && width - col > 0) {
 				return true;
 			}
 		}
         return false;
     }
     
-    /**
-     * This method returns an integer representing the number of mines
-     * contained in the list of neighboring locations.
-     * 
-     * @param neighbors the list of neighboring Locations
-     * @return the hint associated with the list of neighbors
-     */
-    private int calculateHint(List<Location> neighbors) {
-        int hint = 0;
-		for(Location loc : neighbors) {
-			if(loc.hasMine()) hint++;
-		}
-        return hint;
-    }
-    
     public int getWidth() {
-        return location[0].length;
+        return width;
     }
     
     public int getHeight() {
-        return location.length;
+        return height;
     }
     
     public int getMines() {
@@ -192,37 +500,223 @@ public class Grid extends Observable {
      * @return the state of the Minesweeper game outcome
      */
     public Result getResult() {
-		int mistakeCount = 0;
-		int totalNonMines = location.length * location[0].length - mines;
-		int nonMinesUncovered = 0;
-		for(int r = 0; r < location.length; r++) {
-			for(int c = 0; c < location[r].length; c++) {
-				if(location[r][c].getType() == Location.Type.UNCOVERED && location[r][c].hasMine() == true) {
-					mistakeCount++;
-				}
-				else if(location[r][c].getType() == Location.Type.UNCOVERED && location[r][c].hasMine() == false) {
-					nonMinesUncovered++;
-				}
-			}
+		GridMetrics metrics = GridMetrics.active();
+		if(metrics == null) {
+			return countedResult();
 		}
-		if(mistakeCount > 0) {
+		long start = System.nanoTime();
+		Result current = countedResult();
+		metrics.resultRead(System.nanoTime() - start);
+        return current;
+    }
+    
+    /**
+     * This method works out the result from the running counters.
+     * 
+     * @return the state of the Minesweeper game outcome
+     */
+    private Result countedResult() {
+		if(minesUncovered > 0) {
 			return Result.LOSE;
 		}
-		else if(mistakeCount == 0 && nonMinesUncovered == totalNonMines) {
+		else if(safeUncovered == cells.length - mines) {
 			return Result.WIN;
 		}
 		return Result.NONE;
     }
     
     /**
-     * This method returns the location at (row, col).
+     * This method returns the number of flags currently on the grid.
+     * 
+     * @return the number of flagged locations
+     */
+    public int getFlagCount() {
+        return flagsPlaced;
+    }
+    
+    /**
+     * This method registers a listener for the changes made to the 
+     * grid. The listener array is copied on every change, so 
+     * dispatching an event never locks or allocates.
+     * 
+     * @param listener the listener to add
+     */
+    public synchronized void addGridListener(GridListener listener) {
+		GridListener[] current = listeners;
+		GridListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+		listeners = updated;
+    }
+    
+    /**
+     * This method unregisters a listener that was added with 
+     * `addGridListener`.
+     * 
+     * @param listener the listener to remove
+     */
+    public synchronized void removeGridListener(GridListener listener) {
+		GridListener[] current = listeners;
+		for(int i = 0; i < current.length; i++) {
+			if(current[i] == listener) {
+				GridListener[] updated = new GridListener[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				listeners = updated;
+				return;
+			}
+		}
+    }
+    
+    /**
+     * This method registers a java.util.Observer that receives the
+     * grid's events as row:col:info strings.
+     * 
+     * @param o the observer to add
+     */
+    public synchronized void addObserver(Observer o) {
+		if(observers == null) {
+			observers = new ObserverAdapter();
+			addGridListener(observers);
+		}
+		observers.addObserver(o);
+    }
+    
+    public synchronized void deleteObserver(Observer o) {
+		if(observers != null) {
+			observers.deleteObserver(o);
+		}
+    }
+    
+    public void addResultListener(ResultListener listener) {
+        resultListeners.add(listener);
+    }
+    
+    public void removeResultListener(ResultListener listener) {
+        resultListeners.remove(listener);
+    }
+    
+    /**
+     * This method tells every ResultListener about the current result
+     * if it differs from the last one they were told about.
+     */
+    private void checkResult() {
+		Result current = countedResult();
+		if(current != result) {
+			result = current;
+			fireResult(current);
+		}
+    }
+    
+    /**
+     * This method tells every ResultListener that the result is now
+     * `current`.
+     * 
+     * @param current the new result
+     */
+    void fireResult(Result current) {
+		for(ResultListener listener : resultListeners) {
+			listener.resultChanged(this, current);
+		}
+    }
+    
+    /**
+     * This method returns the location at (row, col). The returned 
+     * object is a lightweight view onto the packed cell, so changes
+     * made through it are changes to the grid.
      * 
      * @param row 
      * @param col 
      * @return the location at (row, col)
      */
     public Location getLocation(int row, int col) {
-        return location[row][col];
+        if(isLegalIndex(row, col) == false) {
+            throw new ArrayIndexOutOfBoundsException(row + ":" + col);
+        }
+        return new Location(this, row * width + col);
+    }
+    
+    /**
+     * This method returns the packed byte of the cell at the given
+     * flat index.
+     * 
+     * @param index the flat index (row * width + col)
+     * @return the packed cell
+     */
+    int cellAt(int index) {
+        return cells[index];
+    }
+    
+    /**
+     * This method returns the array of packed cells itself, for 
+     * subclasses that manage the cells in their own way.
+     * 
+     * @return the packed cells
+     */
+    byte[] cellArray() {
+        return cells;
+    }
+    
+    /**
+     * This method returns the registered GridListeners.
+     * 
+     * @return the current listener array, which must not be changed
+     */
+    GridListener[] gridListeners() {
+        return listeners;
+    }
+    
+    /**
+     * This method replaces the packed byte of the cell at the given
+     * flat index and keeps the result counters, and the RegionIndex if
+     * there is one, in step with it. Every change to the type of a 
+     * cell goes through here.
+     * 
+     * @param index the flat index (row * width + col)
+     * @param value the new packed cell
+     */
+    private void writeCell(int index, int value) {
+		int before = cells[index];
+		count(before, -1);
+		cells[index] = (byte)value;
+		count(value, 1);
+		if(regionIndex != null) {
+			regionIndex.update(index, before, value);
+		}
+    }
+    
+    /**
+     * This method replaces the packed byte of the cell at the given
+     * flat index on behalf of a Location view, and then lets the 
+     * ResultListeners know if that changed the outcome.
+     * 
+     * @param index the flat index (row * width + col)
+     * @param value the new packed cell
+     */
+    void updateCell(int index, int value) {
+		writeCell(index, value);
+		checkResult();
+    }
+    
+    /**
+     * This method adds `delta` to the counter that the given packed 
+     * cell contributes to, if any.
+     * 
+     * @param cell the packed cell
+     * @param delta +1 when the cell is added, -1 when it is removed
+     */
+    private void count(int cell, int delta) {
+		int type = cell & Location.TYPE_MASK;
+		if(type == Location.UNCOVERED) {
+			if((cell & Location.MINE) != 0) {
+				minesUncovered += delta;
+			}
+			else {
+				safeUncovered += delta;
+			}
+		}
+		else if(type == Location.FLAGGED) {
+			flagsPlaced += delta;
+		}
     }
     
     /**
@@ -242,83 +736,527 @@ public class Grid extends Observable {
     
     /**
      * This method places a flag at (row, col) if that location is a
-     * legal index and if it is currently covered. It also calls the
-     * `setChanged()` method of the Observable class and notifies
-     * all observers with the message row:col:flag (using the 
-     * appropriate row and col).
+     * legal index and if it is currently covered. It also calls 
+     * `onFlag(row, col)` on every GridListener.
      * 
      * @param row 
      * @param col 
      */
     public void placeFlagAt(int row, int col) {
 		if(isLegalIndex(row, col) == true && isCovered(row, col) == true) {
-			location[row][col].setType(Location.Type.FLAGGED);
-			setChanged();
-			notifyObservers(String.valueOf(row) + ":" + String.valueOf(col) + ":" + "flag");
+			int index = row * width + col;
+			writeCell(index, (cells[index] & ~Location.TYPE_MASK) | Location.FLAGGED);
+			record(MoveJournal.FLAG, index);
+			GridMetrics metrics = GridMetrics.active();
+			long start = metrics == null ? 0 : System.nanoTime();
+			GridListener[] current = listeners;
+			for(int i = 0; i < current.length; i++) {
+				current[i].onFlag(row, col);
+			}
+			if(metrics != null) {
+				metrics.flagged(true, System.nanoTime() - start);
+			}
+			checkResult();
 		}
     }
     
     /**
      * This method removes a flag at (row, col) if that location is a
-     * legal index and if it is currently flagged. It also calls the
-     * `setChanged()` method of the Observable class and notifies
-     * all observers with the message row:col:unflag (using the 
-     * appropriate row and col).
+     * legal index and if it is currently flagged. It also calls 
+     * `onUnflag(row, col)` on every GridListener.
      * 
      * @param row 
      * @param col 
      */
     public void removeFlagAt(int row, int col) {
 		if(isFlagAt(row, col)) {
-			location[row][col].setType(Location.Type.COVERED);
-			setChanged();
-			notifyObservers(String.valueOf(row) + ":" + String.valueOf(col) + ":" + "unflag");
+			int index = row * width + col;
+			writeCell(index, cells[index] & ~Location.TYPE_MASK);
+			record(MoveJournal.UNFLAG, index);
+			GridMetrics metrics = GridMetrics.active();
+			long start = metrics == null ? 0 : System.nanoTime();
+			GridListener[] current = listeners;
+			for(int i = 0; i < current.length; i++) {
+				current[i].onUnflag(row, col);
+			}
+			if(metrics != null) {
+				metrics.flagged(false, System.nanoTime() - start);
+			}
+			checkResult();
 		}
     }
     
     /**
      * This method uncovers (row, col) if that location is a
-     * legal index and if it is currently covered. It also calls the
-     * `setChanged()` method of the Observable class and notifies
-     * all observers. The message depends on whether the location 
-     * contains a mine (row:col:mine) or not (row:col:hint). 
-     * If the hint at this location is 0, then it also recursively
-     * uncovers its 8 neighbors if they are legal indices, are 
-     * currently covered, and contain no mine.
+     * legal index and if it is currently covered. If the location 
+     * contains a mine, every GridListener is told with `onMine`.
+     * If the hint at this location is 0, then it also uncovers its 
+     * 8 neighbors if they are legal indices, are currently covered, 
+     * and contain no mine, repeating for every newly uncovered 0.
+     * All locations uncovered by one call are reported together in a
+     * single `onRegion` call.
      * 
      * @param row 
      * @param col 
      */
     public void uncoverAt(int row, int col) {
 		if(isLegalIndex(row, col) == true && isCovered(row, col) == true) {
-			location[row][col].setType(Location.Type.UNCOVERED);
-			setChanged();
-			if(location[row][col].hasMine()) {
-				notifyObservers(String.valueOf(row) + ":" + String.valueOf(col) + ":" + "mine");
-			}
-			else if (location[row][col].hasMine() == false) {
-				notifyObservers(String.valueOf(row) + ":" + String.valueOf(col) + ":" + String.valueOf(location[row][col].getHint()));
-			}
-			
-			if(location[row][col].getHint() == 0 && location[row][col].hasMine() == false) {
-				for(int i = -1; i <= 1; i++) {
-					for(int j = -1; j <= 1; j++) {
-						int r = row + i;
-						int c = col + j;
-						if(isLegalIndex(r, c)) {
-							if(row != r || col != c) {
-								if(location[r][c].hasMine()) {
-									
-								}
-								else if (location[r][c].hasMine() == false){
-									uncoverAt(r, c);
-								}
-							}
+			GridMetrics metrics = GridMetrics.active();
+			long start = metrics == null ? 0 : System.nanoTime();
+			GridMetrics.UncoverEvent event = metrics == null ? null : metrics.beginUncover();
+			int size = open(row, col);
+			GridListener[] current = listeners;
+			boolean mine = (cells[row * width + col] & Location.MINE) != 0;
+			long dispatched;
+			if(mine) {
+				dispatched = metrics == null ? 0 : System.nanoTime();
+				for(int i = 0; i < current.length; i++) {
+					current[i].onMine(row, col);
+				}
+			}
+			else {
+				regionView.set(region, size);
+				dispatched = metrics == null ? 0 : System.nanoTime();
+				for(int i = 0; i < current.length; i++) {
+					current[i].onRegion(regionView);
+				}
+			}
+			if(metrics != null) {
+				long end = System.nanoTime();
+				metrics.uncovered(event, row, col, size, mine, end - start, end - dispatched);
+			}
+			checkResult();
+		}
+    }
+    
+    /**
+     * This method chords at (row, col): if that location is a legal 
+     * index, is uncovered, has a hint greater than 0, and has exactly
+     * that many flags among its neighbors, then every other covered 
+     * neighbor is uncovered, along with the open regions around them. 
+     * A neighbor with a mine (under a misplaced flag's count) is 
+     * uncovered too, and loses the game. Everything the chord uncovers
+     * is reported in a single `onRegion` call, cascades that run into
+     * each other included, and it is undone as one action.
+     * 
+     * @param row 
+     * @param col 
+     */
+    public void chordAt(int row, int col) {
+		GridMetrics metrics = GridMetrics.active();
+		long start = metrics == null ? 0 : System.nanoTime();
+		GridMetrics.UncoverEvent event = metrics == null ? null : metrics.beginUncover();
+		int size = chord(row, col);
+		if(size == 0) {
+			return;
+		}
+		boolean mine = false;
+		for(int i = 0; i < size && mine == false; i++) {
+			mine = (cells[region[i]] & Location.MINE) != 0;
+		}
+		regionView.set(region, size);
+		long dispatched = metrics == null ? 0 : System.nanoTime();
+		GridListener[] current = listeners;
+		for(int i = 0; i < current.length; i++) {
+			current[i].onRegion(regionView);
+		}
+		if(metrics != null) {
+			long end = System.nanoTime();
+			metrics.uncovered(event, row, col, size, mine, end - start, end - dispatched);
+		}
+		checkResult();
+    }
+    
+    /**
+     * This method uncovers (row, col), which must be a legal index and
+     * covered, and the region around it, placing the mines first if 
+     * they are not placed yet. The uncovered locations are left in 
+     * `region` and recorded for undo, but nobody is told about them.
+     * 
+     * @param row 
+     * @param col 
+     * @return the number of locations uncovered (1 for a mine)
+     */
+    private int open(int row, int col) {
+		if(minesPlaced == false) {
+			placeMinesAround(row, col);
+		}
+		int index = row * width + col;
+		writeCell(index, (cells[index] & ~Location.TYPE_MASK) | Location.UNCOVERED);
+		int size = 1;
+		if((cells[index] & Location.MINE) != 0) {
+			region = ensureRegionCapacity(1);
+			region[0] = index;
+		}
+		else {
+			size = cascade(index);
+		}
+		record(MoveJournal.UNCOVER, region, size);
+        return size;
+    }
+    
+    /**
+     * This method chords at (row, col) as `chordAt` describes, leaving
+     * the uncovered locations in `region` and recording them for undo,
+     * without telling anybody about them.
+     * 
+     * @param row 
+     * @param col 
+     * @return the number of locations uncovered, or 0 if the chord does nothing
+     */
+    private int chord(int row, int col) {
+		if(isLegalIndex(row, col) == false) {
+			return 0;
+		}
+		int index = row * width + col;
+		int hint = cells[index] & Location.HINT_MASK;
+		if((cells[index] & (Location.TYPE_MASK | Location.MINE)) != Location.UNCOVERED || hint == 0) {
+			return 0;
+		}
+		int flagged = 0;
+		int size = 0;
+		region = ensureRegionCapacity(8);
+		for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+			for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+				int type = cells[r * width + c] & Location.TYPE_MASK;
+				if(type == Location.FLAGGED) {
+					flagged++;
+				}
+				else if(type == 0) {
+					region[size++] = r * width + c;
+				}
+			}
+		}
+		if(flagged != hint || size == 0) {
+			return 0;
+		}
+		for(int i = 0; i < size; i++) {
+			writeCell(region[i], cells[region[i]] | Location.UNCOVERED);
+		}
+		size = expand(0, size);
+		record(MoveJournal.UNCOVER, region, size);
+        return size;
+    }
+    
+    /**
+     * This method applies every move of the batch in order, with the 
+     * same effect as calling `uncoverAt`, `placeFlagAt`, `removeFlagAt`,
+     * and `chordAt` one move at a time; moves that would do nothing on
+     * their own do nothing here either. Each move is still its own 
+     * action for undo. The listeners, however, are told only once, with
+     * a single `onRegion` call holding every location whose type is 
+     * different after the batch than before it (so a flag placed and 
+     * removed again in the same batch is not reported at all), and the
+     * ResultListeners are told only the result after the last move.
+     * 
+     * @param batch the moves to apply
+     * @return the result after the last move
+     */
+    public Result apply(MoveBatch batch) {
+		int[] moves = batch.moveArray();
+		int changed = 0;
+		GridMetrics metrics = GridMetrics.active();
+		for(int m = 0; m < batch.size(); m++) {
+			int op = moves[m * 3];
+			int row = moves[m * 3 + 1];
+			int col = moves[m * 3 + 2];
+			if(isLegalIndex(row, col) == false) {
+				continue;
+			}
+			int index = row * width + col;
+			int type = cells[index] & Location.TYPE_MASK;
+			long start = metrics == null ? 0 : System.nanoTime();
+			if(op == MoveJournal.FLAG && type == 0) {
+				changed = touch(changed, index, 0);
+				writeCell(index, cells[index] | Location.FLAGGED);
+				record(MoveJournal.FLAG, index);
+				if(metrics != null) {
+					metrics.flagged(true, 0);
+				}
+			}
+			else if(op == MoveJournal.UNFLAG && type == Location.FLAGGED) {
+				changed = touch(changed, index, Location.FLAGGED);
+				writeCell(index, cells[index] & ~Location.TYPE_MASK);
+				record(MoveJournal.UNFLAG, index);
+				if(metrics != null) {
+					metrics.flagged(false, 0);
+				}
+			}
+			else if(op == MoveJournal.UNCOVER || op == MoveJournal.CHORD) {
+				GridMetrics.UncoverEvent event = metrics == null ? null : metrics.beginUncover();
+				int size = op == MoveJournal.UNCOVER ? (type == 0 ? open(row, col) : 0) : chord(row, col);
+				boolean mine = false;
+				for(int i = 0; i < size; i++) {
+					changed = touch(changed, region[i], 0);
+					mine |= (cells[region[i]] & Location.MINE) != 0;
+				}
+				if(metrics != null && size > 0) {
+					metrics.uncovered(event, row, col, size, mine, System.nanoTime() - start, 0);
+				}
+			}
+		}
+		int reported = 0;
+		for(int i = 0; i < changed; i++) {
+			int index = batchCells[i];
+			batchSeen[index >> 6] &= ~(1L << index);
+			if((cells[index] & Location.TYPE_MASK) != batchTypes[i]) {
+				batchCells[reported++] = index;
+			}
+		}
+		if(reported > 0) {
+			regionView.set(batchCells, reported);
+			GridListener[] current = listeners;
+			for(int i = 0; i < current.length; i++) {
+				current[i].onRegion(regionView);
+			}
+		}
+		checkResult();
+        return countedResult();
+    }
+    
+    /**
+     * This method notes that the batch being applied changes a location,
+     * with the type it had before the batch, unless it was noted already.
+     * 
+     * @param changed the number of locations noted so far
+     * @param index the flat index of the location
+     * @param type the type bits of the location before the batch
+     * @return the number of locations noted now
+     */
+    private int touch(int changed, int index, int type) {
+		if(batchSeen == null) {
+			batchSeen = new long[(cells.length + 63) >> 6];
+			batchCells = new int[Math.min(64, cells.length)];
+			batchTypes = new byte[batchCells.length];
+		}
+		if((batchSeen[index >> 6] & (1L << index)) != 0) {
+			return changed;
+		}
+		batchSeen[index >> 6] |= 1L << index;
+		if(changed == batchCells.length) {
+			int length = Math.min(changed * 2, cells.length);
+			batchCells = Arrays.copyOf(batchCells, length);
+			batchTypes = Arrays.copyOf(batchTypes, length);
+		}
+		batchCells[changed] = index;
+		batchTypes[changed] = (byte)type;
+        return changed + 1;
+    }
+    
+    /**
+     * This method turns recording of undoable actions on or off. Either
+     * way, the actions recorded so far are forgotten.
+     * 
+     * @param enabled whether to record actions
+     */
+    public void setUndoEnabled(boolean enabled) {
+		undoEnabled = enabled;
+		if(enabled && history == null) {
+			history = new int[64];
+			actionStart = new int[16];
+			actionOp = new byte[16];
+		}
+		clearHistory();
+    }
+    
+    public boolean isUndoEnabled() {
+        return undoEnabled;
+    }
+    
+    public boolean canUndo() {
+        return actionCursor > 0;
+    }
+    
+    public boolean canRedo() {
+        return actionCursor < actionCount;
+    }
+    
+    /**
+     * This method takes back the last action that has not been undone.
+     * A cascade is covered again as a whole and reported as a single
+     * region whose `isCovering()` is true; an undone flag or unflag is
+     * reported with `onUnflag` or `onFlag`.
+     * 
+     * @return whether there was an action to undo
+     */
+    public boolean undo() {
+		if(actionCursor == 0) {
+			return false;
+		}
+		actionCursor--;
+		replayAction(actionCursor, true);
+        return true;
+    }
+    
+    /**
+     * This method makes the last undone action again, reporting it the
+     * way it was first reported. The cascade is not recomputed; its
+     * recorded locations are simply uncovered again.
+     * 
+     * @return whether there was an action to redo
+     */
+    public boolean redo() {
+		if(actionCursor == actionCount) {
+			return false;
+		}
+		replayAction(actionCursor, false);
+		actionCursor++;
+        return true;
+    }
+    
+    /**
+     * This method applies recorded action number `action` forward or
+     * backward, and tells the listeners.
+     * 
+     * @param action the number of the action in the history
+     * @param backward true to undo it, false to redo it
+     */
+    private void replayAction(int action, boolean backward) {
+		int from = actionStart[action];
+		int size = actionStart[action + 1] - from;
+		int op = actionOp[action];
+		GridListener[] current = listeners;
+		if(op == MoveJournal.UNCOVER) {
+			region = ensureRegionCapacity(size);
+			System.arraycopy(history, from, region, 0, size);
+			for(int i = 0; i < size; i++) {
+				int index = region[i];
+				int type = backward ? 0 : Location.UNCOVERED;
+				writeCell(index, (cells[index] & ~Location.TYPE_MASK) | type);
+			}
+			regionView.set(region, size, backward);
+			for(int i = 0; i < current.length; i++) {
+				current[i].onRegion(regionView);
+			}
+		}
+		else {
+			int index = history[from];
+			boolean flag = (op == MoveJournal.FLAG) != backward;
+			writeCell(index, (cells[index] & ~Location.TYPE_MASK) | (flag ? Location.FLAGGED : 0));
+			for(int i = 0; i < current.length; i++) {
+				if(flag) {
+					current[i].onFlag(index / width, index % width);
+				}
+				else {
+					current[i].onUnflag(index / width, index % width);
+				}
+			}
+		}
+		checkResult();
+    }
+    
+    private void record(int op, int index) {
+		if(undoEnabled) {
+			int start = append(op, 1);
+			history[start] = index;
+		}
+    }
+    
+    private void record(int op, int[] indices, int size) {
+		if(undoEnabled) {
+			int start = append(op, size);
+			System.arraycopy(indices, 0, history, start, size);
+		}
+    }
+    
+    /**
+     * This method appends an action that changed `size` locations to
+     * the history, dropping any actions that were undone and not 
+     * redone, and returns where in `history` to put their indices.
+     * 
+     * @param op MoveJournal.UNCOVER, FLAG, or UNFLAG
+     * @param size the number of locations it changed
+     * @return the offset of the action's indices in `history`
+     */
+    private int append(int op, int size) {
+		int start = actionStart[actionCursor];
+		if(start + size > history.length) {
+			history = Arrays.copyOf(history, Math.max(history.length * 2, start + size));
+		}
+		if(actionCursor + 2 > actionStart.length) {
+			actionStart = Arrays.copyOf(actionStart, actionStart.length * 2);
+			actionOp = Arrays.copyOf(actionOp, actionOp.length * 2);
+		}
+		actionOp[actionCursor] = (byte)op;
+		actionStart[actionCursor + 1] = start + size;
+		actionCursor++;
+		actionCount = actionCursor;
+        return start;
+    }
+    
+    private void clearHistory() {
+		actionCount = 0;
+		actionCursor = 0;
+    }
+    
+    /**
+     * This method opens the region around a freshly uncovered, mine-free
+     * location without recursion. The `region` array is used as a 
+     * breadth-first work queue: every location is appended exactly once,
+     * at the moment it is uncovered, and only locations with a hint of 0
+     * are expanded. When the queue drains, it holds every location that
+     * was uncovered, in the order they were opened.
+     * 
+     * @param start the flat index of the location that was uncovered
+     * @return the number of locations in the region
+     */
+    private int cascade(int start) {
+		region = ensureRegionCapacity(1);
+		region[0] = start;
+		return expand(0, 1);
+    }
+    
+    /**
+     * This method runs the breadth-first cascade over the `region` 
+     * queue from `head`, where the first `size` entries are locations
+     * that were just uncovered. Mines and locations with a hint other
+     * than 0 are not expanded. Several starting locations may be queued
+     * at once; their regions merge, since every location is queued only
+     * when it is uncovered.
+     * 
+     * @param head the first queued location not yet expanded
+     * @param size the number of queued locations
+     * @return the number of locations in the region
+     */
+    private int expand(int head, int size) {
+		for(; head < size; head++) {
+			int index = region[head];
+			if((cells[index] & (Location.HINT_MASK | Location.MINE)) != 0) {
+				continue;
+			}
+			int row = index / width;
+			int col = index % width;
+			for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+				for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+					int neighbor = r * width + c;
+					if((cells[neighbor] & (Location.TYPE_MASK | Location.MINE)) == 0) {
+						writeCell(neighbor, cells[neighbor] | Location.UNCOVERED);
+						if(size == region.length) {
+							region = ensureRegionCapacity(size + 1);
 						}
+						region[size++] = neighbor;
 					}
 				}
 			}
 		}
+		return size;
+    }
+    
+    /**
+     * This method returns the region buffer grown (by doubling, up to
+     * the number of cells) so that it can hold at least `capacity`
+     * locations.
+     * 
+     * @param capacity the number of locations needed
+     * @return the region buffer
+     */
+    private int[] ensureRegionCapacity(int capacity) {
+		if(region == null || region.length < capacity) {
+			int length = region == null ? 64 : region.length * 2;
+			length = Math.min(Math.max(length, capacity), cells.length);
+			region = region == null ? new int[length] : Arrays.copyOf(region, length);
+		}
+		return region;
     }
     
     /**
@@ -329,7 +1267,7 @@ public class Grid extends Observable {
      * @return whether the location at (row, col) is covered
      */
     private boolean isCovered(int row, int col) {
-		if(location[row][col].getType() == Location.Type.COVERED) {
+		if((cells[row * width + col] & Location.TYPE_MASK) == 0) {
 			return true;
 		}
 		return false;
@@ -343,7 +1281,7 @@ public class Grid extends Observable {
      * @return whether the location at (row, col) is flagged
      */
     private boolean isFlagged(int row, int col) {
-		if(location[row][col].getType() == Location.Type.FLAGGED) {
+		if((cells[row * width + col] & Location.TYPE_MASK) == Location.FLAGGED) {
 			return true;
 		}
 		return false;
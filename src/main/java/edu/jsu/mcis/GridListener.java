@@ -0,0 +1,92 @@
+package edu.jsu.mcis;
+
+
+/**
+ * This interface is implemented by objects that want to be told about
+ * the changes made to a Grid. Every method has an empty default, so a
+ * listener only overrides the events it cares about.
+ *
+ * The grid calls these methods on the thread that changed it, in the
+ * order the changes were made. Listeners are kept in a copy-on-write
+ * array, so they may be added or removed at any time (even from inside
+ * a callback) without locking.
+ */
+public interface GridListener {
+    
+    /**
+     * This method is called when a location without a mine is 
+     * uncovered.
+     * 
+     * @param row 
+     * @param col 
+     * @param hint the number of mines adjacent to (row, col)
+     */
+    default void onUncovered(int row, int col, int hint) {}
+    
+    /**
+     * This method is called when a location with a mine is uncovered.
+     * 
+     * @param row 
+     * @param col 
+     */
+    default void onMine(int row, int col) {}
+    
+    /**
+     * This method is called when a flag is placed at (row, col).
+     * 
+     * @param row 
+     * @param col 
+     */
+    default void onFlag(int row, int col) {}
+    
+    /**
+     * This method is called when the flag at (row, col) is removed.
+     * 
+     * @param row 
+     * @param col 
+     */
+    default void onUnflag(int row, int col) {}
+    
+    /**
+     * This method is called when an uncovered location is covered
+     * again, which only happens when an uncover is undone.
+     * 
+     * @param row 
+     * @param col 
+     */
+    default void onCovered(int row, int col) {}
+    
+    /**
+     * This method is called once for a group of locations that were
+     * changed by a single action, such as the region opened by one
+     * uncover, or everything changed by one MoveBatch. The current 
+     * state of each location tells what happened to it. By default it
+     * is reported location by location through the other methods of 
+     * this interface.
+     * 
+     * @param region the locations that changed
+     */
+    default void onRegion(Region region) {
+		for(int i = 0; i < region.size(); i++) {
+			int row = region.getRow(i);
+			int col = region.getCol(i);
+			if(region.getType(i) == Location.Type.UNCOVERED) {
+				if(region.hasMine(i)) {
+					onMine(row, col);
+				}
+				else {
+					onUncovered(row, col, region.getHint(i));
+				}
+			}
+			else if(region.getType(i) == Location.Type.FLAGGED) {
+				onFlag(row, col);
+			}
+			else if(region.isCovering()) {
+				onCovered(row, col);
+			}
+			else {
+				onUnflag(row, col);
+			}
+		}
+    }
+}
@@ -0,0 +1,405 @@
+package edu.jsu.mcis;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/**
+ * This class collects metrics about the games played in this process:
+ * how many uncovers and flags were made, how large the cascades were,
+ * and how long `uncoverAt`, the dispatch to the GridListeners,
+ * `getResult`, and the painting of board tiles took. The counts are
+ * LongAdders and every latency goes into a Histogram with one bucket
+ * per power of two, so recording a value never locks.
+ *
+ * The metrics are off by default, or on if the system property
+ * `minesweeper.metrics` is true. While they are off, `active()` returns
+ * null and the instrumented code does nothing but check for that, so
+ * they can be left in production builds. They can be turned on and off
+ * at run time with `setEnabled`, also through JMX once `register` has
+ * published them as the MBean `edu.jsu.mcis:type=GridMetrics`.
+ *
+ * While they are on, every uncover and every paint of the board is
+ * also committed as a JDK Flight Recorder event (`edu.jsu.mcis.Uncover`
+ * and `edu.jsu.mcis.TilePaint`) whenever a recording has them enabled,
+ * so slow clicks can be lined up with cascade sizes and GC pauses in
+ * the same recording.
+ */
+public final class GridMetrics implements GridMetricsMBean {
+    public static final String OBJECT_NAME = "edu.jsu.mcis:type=GridMetrics";
+    private static final GridMetrics INSTANCE = new GridMetrics();
+    private static volatile GridMetrics active = Boolean.getBoolean("minesweeper.metrics") ? INSTANCE : null;
+
+    /**
+     * This class counts values in 64 buckets, where bucket b holds the
+     * values that need b bits (so bucket 0 holds 0, bucket 1 holds 1,
+     * bucket 2 holds 2 and 3, and so on). Percentiles are reported as
+     * the upper bound of the bucket they fall in.
+     */
+    public static final class Histogram {
+        private final LongAdder[] buckets;
+        private final LongAdder count;
+        private final LongAdder sum;
+
+        Histogram() {
+			buckets = new LongAdder[64];
+			for(int b = 0; b < buckets.length; b++) {
+				buckets[b] = new LongAdder();
+			}
+			count = new LongAdder();
+			sum = new LongAdder();
+        }
+
+        void record(long value) {
+			value = Math.max(value, 0);
+			buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+			count.increment();
+			sum.add(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMean() {
+			long n = count.sum();
+            return n == 0 ? 0 : (double)sum.sum() / n;
+        }
+
+        /**
+         * This method returns an upper bound on the given fraction of
+         * the values: the largest value of the bucket that holds the
+         * value at that rank.
+         *
+         * @param fraction the fraction, from 0 to 1 (0.99 for the 99th percentile)
+         * @return the upper bound, or 0 if nothing was recorded
+         */
+        public long getPercentile(double fraction) {
+			long[] counts = new long[buckets.length];
+			long total = 0;
+			for(int b = 0; b < buckets.length; b++) {
+				counts[b] = buckets[b].sum();
+				total += counts[b];
+			}
+			long rank = (long)Math.ceil(fraction * total);
+			long seen = 0;
+			for(int b = 0; b < counts.length; b++) {
+				seen += counts[b];
+				if(seen >= rank && counts[b] > 0) {
+					return b == 0 ? 0 : b == 63 ? Long.MAX_VALUE : (1L << b) - 1;
+				}
+			}
+            return 0;
+        }
+
+        void reset() {
+			for(LongAdder bucket : buckets) {
+				bucket.reset();
+			}
+			count.reset();
+			sum.reset();
+        }
+    }
+
+    /**
+     * This event is one call to `uncoverAt` that uncovered something.
+     */
+    @Name("edu.jsu.mcis.Uncover")
+    @Label("Uncover")
+    @Category("Minesweeper")
+    @Description("A call to Grid.uncoverAt and the region it opened")
+    static final class UncoverEvent extends Event {
+        @Label("Row")
+        int row;
+
+        @Label("Column")
+        int col;
+
+        @Label("Cascade Size")
+        int cells;
+
+        @Label("Mine")
+        boolean mine;
+
+        @Label("Dispatch")
+        @Timespan(Timespan.NANOSECONDS)
+        long dispatchNanos;
+    }
+
+    /**
+     * This event is one paint of the board.
+     */
+    @Name("edu.jsu.mcis.TilePaint")
+    @Label("Tile Paint")
+    @Category("Minesweeper")
+    @Description("A paint of the tiles of a BoardView")
+    static final class TilePaintEvent extends Event {
+        @Label("Tiles")
+        int tiles;
+    }
+
+    private final LongAdder uncovers;
+    private final LongAdder minesHit;
+    private final LongAdder flags;
+    private final LongAdder unflags;
+    private final LongAdder cascadeCells;
+    private final LongAdder tilesPainted;
+    private final Histogram cascadeSize;
+    private final Histogram uncoverNanos;
+    private final Histogram dispatchNanos;
+    private final Histogram resultNanos;
+    private final Histogram paintNanos;
+
+    private GridMetrics() {
+		uncovers = new LongAdder();
+		minesHit = new LongAdder();
+		flags = new LongAdder();
+		unflags = new LongAdder();
+		cascadeCells = new LongAdder();
+		tilesPainted = new LongAdder();
+		cascadeSize = new Histogram();
+		uncoverNanos = new Histogram();
+		dispatchNanos = new Histogram();
+		resultNanos = new Histogram();
+		paintNanos = new Histogram();
+    }
+
+    /**
+     * This method returns the metrics of this process, whether or not
+     * they are enabled.
+     *
+     * @return the metrics
+     */
+    public static GridMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * This method returns the metrics if they are enabled, and null if
+     * they are not. Instrumented code calls it once per operation and
+     * skips all of its timing when it returns null.
+     *
+     * @return the metrics, or null
+     */
+    static GridMetrics active() {
+        return active;
+    }
+
+    /**
+     * This method publishes the metrics on the platform MBean server,
+     * if they are not published already.
+     */
+    public static synchronized void register() {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if(ManagementFactory.getPlatformMBeanServer().isRegistered(name) == false) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+			}
+		}
+		catch(JMException e) {
+			throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+		}
+    }
+
+    public boolean isEnabled() {
+        return active != null;
+    }
+
+    public void setEnabled(boolean enabled) {
+		active = enabled ? this : null;
+    }
+
+    /**
+     * This method clears every count and histogram.
+     */
+    public void reset() {
+		uncovers.reset();
+		minesHit.reset();
+		flags.reset();
+		unflags.reset();
+		cascadeCells.reset();
+		tilesPainted.reset();
+		cascadeSize.reset();
+		uncoverNanos.reset();
+		dispatchNanos.reset();
+		resultNanos.reset();
+		paintNanos.reset();
+    }
+
+    /**
+     * This method starts the Flight Recorder event of an uncover, to be
+     * handed back to `uncovered` when the uncover is done, so that the
+     * event spans the uncover itself on the recording's timeline.
+     *
+     * @return the started event
+     */
+    UncoverEvent beginUncover() {
+		UncoverEvent event = new UncoverEvent();
+		event.begin();
+        return event;
+    }
+
+    /**
+     * This method records one uncover, and ends and commits its event.
+     *
+     * @param event the event from `beginUncover`
+     * @param row
+     * @param col
+     * @param cells the number of locations uncovered (1 for a mine)
+     * @param mine whether a mine was uncovered
+     * @param nanos the time taken by the whole call
+     * @param dispatch the part of that time spent in the listeners
+     */
+    void uncovered(UncoverEvent event, int row, int col, int cells, boolean mine, long nanos, long dispatch) {
+		uncovers.increment();
+		if(mine) {
+			minesHit.increment();
+		}
+		cascadeCells.add(cells);
+		cascadeSize.record(cells);
+		uncoverNanos.record(nanos);
+		dispatchNanos.record(dispatch);
+		event.end();
+		if(event.shouldCommit()) {
+			event.row = row;
+			event.col = col;
+			event.cells = cells;
+			event.mine = mine;
+			event.dispatchNanos = dispatch;
+			event.commit();
+		}
+    }
+
+    /**
+     * This method records a flag being placed or removed.
+     *
+     * @param placed true for a flag placed, false for one removed
+     * @param dispatch the time spent in the listeners
+     */
+    void flagged(boolean placed, long dispatch) {
+		(placed ? flags : unflags).increment();
+		dispatchNanos.record(dispatch);
+    }
+
+    void resultRead(long nanos) {
+		resultNanos.record(nanos);
+    }
+
+    /**
+     * This method starts the Flight Recorder event of a paint, to be
+     * handed back to `painted` when the paint is done.
+     *
+     * @return the started event
+     */
+    TilePaintEvent beginPaint() {
+		TilePaintEvent event = new TilePaintEvent();
+		event.begin();
+        return event;
+    }
+
+    /**
+     * This method records one paint of a BoardView, and ends and 
+     * commits its event.
+     *
+     * @param event the event from `beginPaint`
+     * @param tiles the number of tiles drawn
+     * @param nanos the time taken to draw them
+     */
+    void painted(TilePaintEvent event, int tiles, long nanos) {
+		tilesPainted.add(tiles);
+		paintNanos.record(nanos);
+		event.end();
+		if(event.shouldCommit()) {
+			event.tiles = tiles;
+			event.commit();
+		}
+    }
+
+    public long getUncovers() {
+        return uncovers.sum();
+    }
+
+    public long getMinesHit() {
+        return minesHit.sum();
+    }
+
+    public long getFlagsPlaced() {
+        return flags.sum();
+    }
+
+    public long getFlagsRemoved() {
+        return unflags.sum();
+    }
+
+    public long getCascadeCells() {
+        return cascadeCells.sum();
+    }
+
+    public long getTilesPainted() {
+        return tilesPainted.sum();
+    }
+
+    public double getMeanCascadeSize() {
+        return cascadeSize.getMean();
+    }
+
+    public long getCascadeSizeP99() {
+        return cascadeSize.getPercentile(0.99);
+    }
+
+    public double getMeanUncoverNanos() {
+        return uncoverNanos.getMean();
+    }
+
+    public long getUncoverNanosP99() {
+        return uncoverNanos.getPercentile(0.99);
+    }
+
+    public double getMeanDispatchNanos() {
+        return dispatchNanos.getMean();
+    }
+
+    public long getDispatchNanosP99() {
+        return dispatchNanos.getPercentile(0.99);
+    }
+
+    public double getMeanResultNanos() {
+        return resultNanos.getMean();
+    }
+
+    public double getMeanPaintNanos() {
+        return paintNanos.getMean();
+    }
+
+    public long getPaintNanosP99() {
+        return paintNanos.getPercentile(0.99);
+    }
+
+    public Histogram getCascadeSizes() {
+        return cascadeSize;
+    }
+
+    public Histogram getUncoverLatency() {
+        return uncoverNanos;
+    }
+
+    public Histogram getDispatchLatency() {
+        return dispatchNanos;
+    }
+
+    public Histogram getResultLatency() {
+        return resultNanos;
+    }
+
+    public Histogram getPaintLatency() {
+        return paintNanos;
+    }
+}
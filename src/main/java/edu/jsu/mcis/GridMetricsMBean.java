@@ -0,0 +1,31 @@
+package edu.jsu.mcis;
+
+
+/**
+ * This interface is the management view of GridMetrics, as published
+ * over JMX by `GridMetrics.register()`. Latencies are in nanoseconds,
+ * and the 99th percentiles are the upper bounds of power-of-two 
+ * buckets.
+ */
+public interface GridMetricsMBean {
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    void reset();
+    
+    long getUncovers();
+    long getMinesHit();
+    long getFlagsPlaced();
+    long getFlagsRemoved();
+    long getCascadeCells();
+    long getTilesPainted();
+    
+    double getMeanCascadeSize();
+    long getCascadeSizeP99();
+    double getMeanUncoverNanos();
+    long getUncoverNanosP99();
+    double getMeanDispatchNanos();
+    long getDispatchNanosP99();
+    double getMeanResultNanos();
+    double getMeanPaintNanos();
+    long getPaintNanosP99();
+}
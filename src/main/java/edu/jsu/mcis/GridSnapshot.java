@@ -0,0 +1,231 @@
+package edu.jsu.mcis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+
+/**
+ * This class saves a Grid, part way through a game, to a file and
+ * restores it. The file is laid out so that it can be memory-mapped
+ * and decoded in bulk, 64 locations at a time:
+ *
+ *     magic (4 bytes) width (4) height (4) mines (4) seconds (4)
+ *     hints stored (4) pending placement (4) reserved (4)
+ *     mine plane (8 bytes per 64 locations)
+ *     covered plane (8 bytes per 64 locations)
+ *     flag plane (8 bytes per 64 locations)
+ *     hints (one 4-bit nibble per location, optional)
+ *
+ * Every plane holds one bit per location in row-major order, bit
+ * i % 64 of long i / 64. A location is uncovered when its covered bit
+ * is clear, and flagged when its flag bit is set. The hints take half
+ * a byte per location, the even location in the low nibble; when they
+ * are left out, they are recomputed from the mines on loading. A grid
+ * saved before its deferred mines were placed (see Grid.Placement)
+ * stores the ordinal of its placement in the pending placement field,
+ * and waits for its first uncover again once loaded; otherwise the
+ * field is -1.
+ *
+ * Loading maps the file and turns the planes straight into the packed
+ * cells of the new Grid. Large boards are decoded in parallel bands.
+ * The elapsed time of the game is saved with the board so that a
+ * Ticker can resume from it.
+ */
+public class GridSnapshot {
+    static final int MAGIC = 0x4D535331;
+    static final int HEADER_SIZE = 32;
+    private static final int PARALLEL_WORDS = 1 << 14;
+
+    private final Grid grid;
+    private final int seconds;
+
+    private GridSnapshot(Grid grid, int seconds) {
+		this.grid = grid;
+		this.seconds = seconds;
+    }
+
+    /**
+     * This method returns the restored grid. It is a new grid, not
+     * connected to the file.
+     *
+     * @return the restored grid
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * This method returns the elapsed time of the game when it was
+     * saved.
+     *
+     * @return the elapsed time in seconds
+     */
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public static void save(Grid grid, int seconds, Path path) throws IOException {
+		save(grid, seconds, path, true);
+    }
+
+    /**
+     * This method writes the grid to a snapshot file, replacing the
+     * file if it exists.
+     *
+     * @param grid the grid to save
+     * @param seconds the elapsed time of the game
+     * @param path the snapshot file
+     * @param hints whether to store the hints
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Grid grid, int seconds, Path path, boolean hints) throws IOException {
+		int total = grid.getWidth() * grid.getHeight();
+		int words = (total + 63) >> 6;
+		long size = HEADER_SIZE + 24L * words + (hints ? (total + 1) / 2 : 0);
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+		                                           StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(MAGIC).putInt(grid.getWidth()).putInt(grid.getHeight()).putInt(grid.getMines());
+			buffer.putInt(seconds).putInt(hints ? 1 : 0);
+			buffer.putInt(grid.areMinesPlaced() ? -1 : grid.getPlacement().ordinal()).putInt(0);
+			int mineAt = HEADER_SIZE;
+			int coveredAt = mineAt + 8 * words;
+			int flagAt = coveredAt + 8 * words;
+			int hintAt = flagAt + 8 * words;
+			for(int w = 0; w < words; w++) {
+				long mine = 0;
+				long covered = 0;
+				long flag = 0;
+				int end = Math.min(total - (w << 6), 64);
+				for(int b = 0; b < end; b++) {
+					int cell = grid.cellAt((w << 6) + b);
+					int type = cell & Location.TYPE_MASK;
+					mine |= (long)((cell >> Location.MINE_SHIFT) & 1) << b;
+					covered |= (type != Location.UNCOVERED ? 1L : 0L) << b;
+					flag |= (type == Location.FLAGGED ? 1L : 0L) << b;
+				}
+				buffer.putLong(mineAt + 8 * w, mine);
+				buffer.putLong(coveredAt + 8 * w, covered);
+				buffer.putLong(flagAt + 8 * w, flag);
+			}
+			if(hints) {
+				for(int i = 0; i < total; i += 2) {
+					int low = grid.cellAt(i) & Location.HINT_MASK;
+					int high = i + 1 < total ? grid.cellAt(i + 1) & Location.HINT_MASK : 0;
+					buffer.put(hintAt + (i >> 1), (byte)(low | (high << 4)));
+				}
+			}
+			buffer.force();
+		}
+    }
+
+    /**
+     * This method restores a grid from a snapshot file. Later resets
+     * of the grid use a new, unseeded generator.
+     *
+     * @param path the snapshot file
+     * @return the snapshot, with the restored grid and elapsed time
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static GridSnapshot load(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if(channel.size() < HEADER_SIZE) {
+				throw new IOException(path + " is not a grid snapshot");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt(0) != MAGIC) {
+				throw new IOException(path + " is not a grid snapshot");
+			}
+			int width = buffer.getInt(4);
+			int height = buffer.getInt(8);
+			int mines = buffer.getInt(12);
+			int seconds = buffer.getInt(16);
+			boolean hints = buffer.getInt(20) != 0;
+			int pending = buffer.getInt(24);
+			if(width <= 0 || height <= 0 || (long)width * height > Integer.MAX_VALUE) {
+				throw new IOException(path + " has a bad size: " + width + "x" + height);
+			}
+			int total = width * height;
+			if(mines < 0 || mines > total) {
+				throw new IOException(path + " has a bad number of mines: " + mines);
+			}
+			int words = (total + 63) >> 6;
+			long size = HEADER_SIZE + 24L * words + (hints ? (total + 1) / 2 : 0);
+			if(channel.size() < size) {
+				throw new IOException(path + " is truncated");
+			}
+			byte[] cells = new byte[total];
+			int planted;
+			if(words < PARALLEL_WORDS) {
+				planted = decode(buffer, cells, words, hints, 0, words);
+			}
+			else {
+				int bands = 64;
+				planted = IntStream.range(0, bands).parallel().map(b ->
+					decode(buffer, cells, words, hints, (int)((long)words * b / bands), (int)((long)words * (b + 1) / bands))).sum();
+			}
+			boolean deferred = pending > 0 && pending < Grid.Placement.values().length;
+			if(planted != (deferred ? 0 : mines)) {
+				throw new IOException(path + " has " + planted + " mines in its mine plane, but " + mines + " in its header");
+			}
+			Grid grid = new Grid(width, height, mines, new Random(), cells);
+			if(deferred) {
+				grid.deferPlacement(Grid.Placement.values()[pending]);
+			}
+			else if(hints == false) {
+				grid.placeHints();
+			}
+			return new GridSnapshot(grid, seconds);
+		}
+    }
+
+    /**
+     * This method decodes the locations of words [fromWord, toWord) of
+     * the planes into packed cells, and counts the mines among them. It
+     * only uses absolute reads, so several bands can be decoded from 
+     * the same buffer at once.
+     *
+     * @param buffer the mapped file
+     * @param cells the packed cells to fill
+     * @param words the number of words in each plane
+     * @param hints whether the file stores the hints
+     * @param fromWord the first word to decode (inclusive)
+     * @param toWord the last word to decode (exclusive)
+     * @return the number of mines in the decoded locations
+     */
+    private static int decode(ByteBuffer buffer, byte[] cells, int words, boolean hints, int fromWord, int toWord) {
+		int mineAt = HEADER_SIZE;
+		int coveredAt = mineAt + 8 * words;
+		int flagAt = coveredAt + 8 * words;
+		int hintAt = flagAt + 8 * words;
+		int planted = 0;
+		for(int w = fromWord; w < toWord; w++) {
+			long mine = buffer.getLong(mineAt + 8 * w);
+			long covered = buffer.getLong(coveredAt + 8 * w);
+			long flag = buffer.getLong(flagAt + 8 * w);
+			int start = w << 6;
+			int end = Math.min(cells.length - start, 64);
+			planted += Long.bitCount(end == 64 ? mine : mine & ((1L << end) - 1));
+			for(int b = 0; b < end; b++) {
+				int cell = (int)((mine >>> b) & 1) << Location.MINE_SHIFT;
+				if(((flag >>> b) & 1) != 0) {
+					cell |= Location.FLAGGED;
+				}
+				else if(((covered >>> b) & 1) == 0) {
+					cell |= Location.UNCOVERED;
+				}
+				if(hints) {
+					cell |= (buffer.get(hintAt + ((start + b) >> 1)) >> (((start + b) & 1) << 2)) & Location.HINT_MASK;
+				}
+				cells[start + b] = (byte)cell;
+			}
+		}
+        return planted;
+    }
+}
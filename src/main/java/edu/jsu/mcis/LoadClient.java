@@ -0,0 +1,188 @@
+package edu.jsu.mcis;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * This class puts load on a GameServer. It opens a number of
+ * connections at once, and on each one plays a number of games by
+ * uncovering random locations that it has not yet seen uncovered,
+ * until every game is won or lost. It reports the totals as a
+ * Simulator.Summary, where the time is the wall-clock time of each
+ * game as seen by the client.
+ */
+public class LoadClient {
+    private final String host;
+    private final int port;
+    private final LongAdder games;
+    private final LongAdder wins;
+    private final LongAdder losses;
+    private final LongAdder clicks;
+    private final LongAdder nanos;
+
+    public LoadClient(String host, int port) {
+		this.host = host;
+		this.port = port;
+		games = new LongAdder();
+		wins = new LongAdder();
+		losses = new LongAdder();
+		clicks = new LongAdder();
+		nanos = new LongAdder();
+    }
+
+    /**
+     * This method plays `games` games of the given size on each of
+     * `connections` connections at once, and waits for all of them.
+     * Connection c plays its games on seeds c * games, c * games + 1,
+     * and so on.
+     *
+     * @param connections the number of connections to open
+     * @param games the number of games to play on each connection
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @return the totals of every game played
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public Simulator.Summary run(int connections, int games, int width, int height, int mines) throws InterruptedException {
+		ExecutorService threads = GameServer.newThreadPerTaskExecutor();
+		for(int c = 0; c < connections; c++) {
+			long firstSeed = (long)c * games;
+			threads.execute(() -> {
+				try {
+					play(firstSeed, games, width, height, mines);
+				}
+				catch(IOException e) {
+					System.err.println("A connection failed: " + e.getMessage());
+				}
+			});
+		}
+		threads.shutdown();
+		while(threads.awaitTermination(1, TimeUnit.DAYS) == false);
+        return new Simulator.Summary(this.games.sum(), wins.sum(), losses.sum(), clicks.sum(), nanos.sum());
+    }
+
+    /**
+     * This method plays the games of one connection.
+     *
+     * @param firstSeed the seed of the first game
+     * @param count the number of games to play
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @throws IOException if the connection fails
+     */
+    private void play(long firstSeed, int count, int width, int height, int mines) throws IOException {
+		try(Connection connection = new Connection(width * height, width)) {
+			Random player = new Random(firstSeed);
+			for(int game = 0; game < count; game++) {
+				long start = System.nanoTime();
+				Grid.Result result = connection.newGame("NEW " + width + " " + height + " " + mines + " " + (firstSeed + game));
+				while(result == Grid.Result.NONE && connection.unseen > 0) {
+					int pick = player.nextInt(connection.unseen);
+					int index = -1;
+					while(pick >= 0) {
+						if(connection.seen[++index] == false) {
+							pick--;
+						}
+					}
+					result = connection.send("U " + index / width + " " + index % width);
+					clicks.increment();
+				}
+				nanos.add(System.nanoTime() - start);
+				games.increment();
+				if(result == Grid.Result.WIN) {
+					wins.increment();
+				}
+				else if(result == Grid.Result.LOSE) {
+					losses.increment();
+				}
+			}
+		}
+    }
+
+    /**
+     * This class is one connection to the server, with what it has
+     * seen of the game being played on it.
+     */
+    private class Connection implements Closeable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+        private final boolean[] seen;
+        private final int width;
+        private int unseen;
+
+        Connection(int cells, int width) throws IOException {
+			socket = new Socket(host, port);
+			socket.setTcpNoDelay(true);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+			seen = new boolean[cells];
+			this.width = width;
+        }
+
+        Grid.Result newGame(String command) throws IOException {
+			Arrays.fill(seen, false);
+			unseen = seen.length;
+			return send(command);
+        }
+
+        /**
+         * This method sends one command and reads the events it caused
+         * up to the closing OK, marking every uncovered location as
+         * seen.
+         *
+         * @param command the command to send
+         * @return the result, if the command ended the game, or NONE
+         * @throws IOException if the connection fails or the server refuses
+         */
+        Grid.Result send(String command) throws IOException {
+			out.write(command);
+			out.write('\n');
+			out.flush();
+			Grid.Result result = Grid.Result.NONE;
+			String line;
+			while((line = in.readLine()) != null && line.equals("OK") == false) {
+				if(line.startsWith("ERR")) {
+					throw new IOException(command + ": " + line);
+				}
+				else if(line.equals("WIN") || line.equals("LOSE")) {
+					result = Grid.Result.valueOf(line);
+				}
+				else {
+					for(String entry : line.split(" ")) {
+						String[] parts = entry.split(":");
+						if(parts.length == 3 && parts[2].endsWith("flag") == false) {
+							int index = Integer.parseInt(parts[0]) * width + Integer.parseInt(parts[1]);
+							if(seen[index] == false) {
+								seen[index] = true;
+								unseen--;
+							}
+						}
+					}
+				}
+			}
+			if(line == null) {
+				throw new EOFException("the server closed the connection");
+			}
+			return result;
+        }
+
+        public void close() throws IOException {
+			try {
+				out.write("QUIT\n");
+				out.flush();
+			}
+			finally {
+				socket.close();
+			}
+        }
+    }
+}
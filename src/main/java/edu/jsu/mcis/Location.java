@@ -3,58 +3,115 @@ package edu.jsu.mcis;
 
 /**
  * This class represents a grid location in Minesweeper. Each location
- * can be either covered, uncovered, or flagged (all mutually 
+ * can be either covered, uncovered, or flagged (all mutually
  * exclusive). It can also have a mine (or not), and it is associated
  * with a hint, which is a number in [0, 8] representing the number
  * of mines that are adjacent to it.
+ *
+ * All three values are packed into a single byte of the form
+ *
+ *     0TTMHHHH
+ *
+ * where `TT` is the ordinal of the Type, `M` is the mine bit, and
+ * `HHHH` is the hint. A location created with the public constructor
+ * owns its byte. A location returned by `Grid.getLocation` is only a
+ * view onto the byte stored in the grid's flat cell array, so reading
+ * and writing it reads and writes the grid itself.
  */
 public class Location {
     public enum Type {COVERED, UNCOVERED, FLAGGED};
-    private Type type;
-    private boolean mine;
-    private int hint;
-    
+
+    static final int HINT_MASK = 0x0F;
+    static final int MINE_SHIFT = 4;
+    static final int MINE = 1 << MINE_SHIFT;
+    static final int TYPE_SHIFT = 5;
+    static final int TYPE_MASK = 0x60;
+    static final int UNCOVERED = 1 << TYPE_SHIFT;
+    static final int FLAGGED = 2 << TYPE_SHIFT;
+
+    private static final Type[] TYPES = Type.values();
+
+    private final Grid grid;
+    private final int index;
+    private byte state;
+
     /**
      * This constructor creates a location with default settings
      * (type COVERED, mine false, hint 0).
      */
     public Location() {
-		type = Type.COVERED;
-		mine = false;
-		hint = 0;
+		grid = null;
+		index = 0;
+		state = 0;
     }
-    
+
     /**
-     * This method resets the location to its default settings 
+     * This constructor creates a view onto the cell at the given flat
+     * index (row * width + col) of the grid.
+     *
+     * @param grid the grid that owns the cell
+     * @param index the flat index of the cell
+     */
+    Location(Grid grid, int index) {
+		this.grid = grid;
+		this.index = index;
+    }
+
+    /**
+     * This method resets the location to its default settings
      * (type COVERED, mine false, hint 0).
      */
     public void reset() {
-		type = Type.COVERED;
-		mine = false;
-		hint = 0;
+		write(0);
     }
-    
+
     public Type getType() {
-		return type;
+		return typeOf(read());
     }
-    
+
     public void setType(Type t) {
-		type = t;
+		write((read() & ~TYPE_MASK) | (t.ordinal() << TYPE_SHIFT));
     }
-    
+
     public boolean hasMine() {
-		return mine; 
+		return (read() & MINE) != 0;
     }
-    
+
     public void setMine(boolean m) {
-		mine = m;
+		write(m ? read() | MINE : read() & ~MINE);
     }
 
     public int getHint() {
-		return hint;
+		return read() & HINT_MASK;
     }
-    
+
     public void setHint(int h) {
-		hint = h;
+		write((read() & ~HINT_MASK) | (h & HINT_MASK));
+    }
+
+    /**
+     * This method returns the Type stored in a packed cell.
+     * 
+     * @param cell the packed cell
+     * @return the type of the cell
+     */
+    static Type typeOf(int cell) {
+		return TYPES[(cell & TYPE_MASK) >> TYPE_SHIFT];
+    }
+    
+    private int read() {
+		if(grid == null) {
+			return state;
+		}
+		return grid.cellAt(index);
+    }
+
+    private void write(int s) {
+		if(grid == null) {
+			state = (byte)s;
+		}
+		else {
+			grid.updateCell(index, s);
+		}
     }
 }
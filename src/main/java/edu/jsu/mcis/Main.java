@@ -1,13 +1,61 @@
 package edu.jsu.mcis;
 
+import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import javax.swing.*;
 
 
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        GridMetrics.register();
+        if(args.length > 0 && args[0].equals("simulate")) {
+            simulate(args);
+            return;
+        }
+        else if(args.length > 0 && args[0].equals("server")) {
+            GameServer server = new GameServer(args.length > 1 ? Integer.parseInt(args[1]) : 0);
+            server.start();
+            System.out.println("Serving Minesweeper on port " + server.getPort());
+            Thread.currentThread().join();
+            return;
+        }
+        else if(args.length > 0 && args[0].equals("client")) {
+            loadTest(args);
+            return;
+        }
+        else if(args.length == 2 && args[0].equals("replay")) {
+            MoveJournal journal = MoveJournal.read(Paths.get(args[1]));
+            Minesweeper board = new Minesweeper(journal.getWidth(), journal.getHeight(),
+                                                journal.getMines(), journal.getSeed(), journal.getPlacement());
+            show(board);
+            SwingUtilities.invokeLater(() -> board.replay(journal));
+            return;
+        }
+        String journal = null;
+        String snapshot = null;
+        boolean noGuess = false;
+        if(args.length >= 1 && args[0].equals("noguess")) {
+            noGuess = true;
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if(args.length >= 2 && args[0].equals("record")) {
+            journal = args[1];
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        else if(args.length >= 2 && args[0].equals("resume")) {
+            snapshot = args[1];
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
         Minesweeper board = null;
-        if(args.length == 0) {
+        if(snapshot != null && Files.exists(Paths.get(snapshot))) {
+            board = new Minesweeper(GridSnapshot.load(Paths.get(snapshot)));
+        }
+        else if(args.length == 0) {
             board = new Minesweeper();
         }
         else if(args.length == 3) {
@@ -19,12 +67,85 @@ public class Main {
             System.out.println("You must either specify all of width/height/mines or none (default 8/8/10).");
         }
         else {
-            JFrame win = new JFrame("Minesweeper");
-            win.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-            win.add(board);
-            win.pack();
-            win.setVisible(true);
+            if(journal != null) {
+                board.record(Paths.get(journal));
+            }
+            if(noGuess) {
+                board.setBoardPool(new BoardPool());
+            }
+            JFrame win = show(board);
+            if(snapshot != null) {
+                saveOnClose(win, board, Paths.get(snapshot));
+            }
+        }
+    }
+    
+    private static JFrame show(Minesweeper board) {
+        JFrame win = new JFrame("Minesweeper");
+        win.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        win.add(board);
+        win.pack();
+        win.setVisible(true);
+        return win;
+    }
+    
+    /**
+     * This method saves the game to the snapshot file when the window
+     * is closed, so that `resume` picks it up again next time.
+     */
+    private static void saveOnClose(JFrame win, Minesweeper board, Path path) {
+        win.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent event) {
+                try {
+                    board.save(path);
+                }
+                catch(IOException e) {
+                    System.err.println("Could not save the game: " + e.getMessage());
+                }
+            }
+        });
+    }
+    
+    /**
+     * This method runs the load client against a server on this host
+     * and prints the totals and the rate of moves. The arguments are
+     *
+     *     client port connections games [width height mines]
+     */
+    private static void loadTest(String[] args) throws InterruptedException {
+        if(args.length != 4 && args.length != 7) {
+            System.out.println("Usage: client port connections games [width height mines]");
+            return;
+        }
+        LoadClient client = new LoadClient("localhost", Integer.parseInt(args[1]));
+        int width = args.length == 7 ? Integer.parseInt(args[4]) : 8;
+        int height = args.length == 7 ? Integer.parseInt(args[5]) : 8;
+        int mines = args.length == 7 ? Integer.parseInt(args[6]) : 10;
+        long start = System.nanoTime();
+        Simulator.Summary summary = client.run(Integer.parseInt(args[2]), Integer.parseInt(args[3]), width, height, mines);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(summary);
+        System.out.printf("%.0f moves per second%n", summary.getClicks() / seconds);
+    }
+    
+    /**
+     * This method plays games without a window and prints the totals
+     * as they come in. The arguments are
+     *
+     *     simulate width height mines games [firstSeed]
+     */
+    private static void simulate(String[] args) throws InterruptedException {
+        if(args.length != 5 && args.length != 6) {
+            System.out.println("Usage: simulate width height mines games [firstSeed]");
+            return;
         }
+        Simulator simulator = new Simulator(Integer.parseInt(args[1]),
+                                            Integer.parseInt(args[2]),
+                                            Integer.parseInt(args[3]),
+                                            SolverStrategy::new);
+        long firstSeed = args.length == 6 ? Long.parseLong(args[5]) : 0;
+        Simulator.Summary summary = simulator.run(firstSeed, Long.parseLong(args[4]), System.out::println, 1000);
+        System.out.println(summary);
     }
 }
 
@@ -3,37 +3,78 @@ package edu.jsu.mcis;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
-import java.util.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 /**
  * This class represents a graphical view of the Minesweeper grid. It
- * has a two-dimensional array of JLabels for the locations, a Ticker
- * object for the count-up timer, and a JLabel to display the current
+ * has a BoardView that draws all of the locations, a Ticker object 
+ * for the count-up timer, and a JLabel to display the current 
  * available flags.
  *
- * It implements the MouseListener to apply to each label in the grid
- * so that right-clicking places flags and left-clicking uncovers the
- * location. It also implements the Observer interface so that it can
- * be an observer of the grid. This means it receives the messages 
- * produced by the grid. Those messages are as follows:
- *     row:col:mine
- *     row:col:flag
- *     row:col:unflag
- *     row:col:<hint> (where <hint> is an integer)
- * The main updating of the interface should be done in response to
- * those messages.
+ * It implements the MouseListener to apply to the board so that 
+ * right-clicking places flags and left-clicking uncovers the location
+ * under the mouse. It also implements the GridListener interface so 
+ * that it can keep the flag count up to date as flags are placed and
+ * removed; the board repaints itself from the same events. The end of
+ * the game is announced separately, through the grid's ResultListener
+ * interface.
+ *
+ * The grid is not played on the event dispatch thread. Clicks and keys
+ * only queue moves there, and the moves are applied by a single worker
+ * thread shared by every Minesweeper, so a large cascade never holds
+ * up the interface. The BoardView is a coalesced one: it collects what
+ * the worker changes and applies it once per frame on the event 
+ * dispatch thread, where the flag count is brought up to date in the
+ * same frame.
+ *
+ * A left click on an uncovered number, or a middle click anywhere on 
+ * it, chords: once as many flags as the hint are placed around it, 
+ * every other covered neighbor is opened at once, in one move.
+ *
+ * Ctrl+Z takes back the last uncover or flag (a whole cascade at a 
+ * time) and Ctrl+Y makes it again. Both go through the same queue as
+ * the clicks, and the board repaints only the locations they change.
+ *
+ * A game can be recorded to a MoveJournal with `record`, and a
+ * recorded game can be watched again with `replay`.
+ *
+ * The New Game button starts another game of the same size. Given a
+ * BoardPool with `setBoardPool`, each new game is a ready board that
+ * can be solved without guessing, with its opening uncovered, if the
+ * pool has one ready, and an ordinary board otherwise.
  */
-public class Minesweeper extends JPanel implements MouseListener, Observer {
-    /**
-     * These constants can be used as the icons on labels.
-     */
-    private final ImageIcon FLAG_ICON = new ImageIcon(getClass().getClassLoader().getResource("flag.png"));
-    private final ImageIcon MINE_ICON = new ImageIcon(getClass().getClassLoader().getResource("mine.png"));
+public class Minesweeper extends JPanel implements MouseListener, GridListener, Grid.ResultListener {
+    private static final int UNCOVER = 0;
+    private static final int TOGGLE_FLAG = 1;
+    private static final int UNDO = 2;
+    private static final int REDO = 3;
+    private static final int NEW_GAME = 4;
+    private static final int CHORD = 5;
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "Minesweeper-grid");
+		thread.setDaemon(true);
+		return thread;
+	});
     
     private Grid grid;
-    private int flags;
-    private JLabel[][] tile;
+    private long seed;
+    private volatile boolean unseeded;
+    private MoveJournal.Writer journal;
+    private volatile int flags;
+    private final Object queueLock;
+    private int[] moves;
+    private int[] draining;
+    private final MoveBatch pending;
+    private int moveCount;
+    private boolean drainPending;
+    private BoardView board;
     private JLabel flagLabel;
     private Ticker ticker;
     private boolean enabled;
@@ -48,8 +89,8 @@ public class Minesweeper extends JPanel implements MouseListener, Observer {
     /**
      * This constructor creates a new board of the specified size and
      * mines. The number of initial flags should be the same as the 
-     * number of mines. The labels (if covered) should have raised
-     * bevel borders and should be size 50-by-50. Ideally, the layout
+     * number of mines. The locations (if covered) are drawn with raised
+     * bevel borders and are 50-by-50 pixels. Ideally, the layout
      * of the interface should look something like the following:
      *
      *     --------------------------------------
@@ -75,10 +116,10 @@ public class Minesweeper extends JPanel implements MouseListener, Observer {
      *     |                                    |
      *     --------------------------------------
      *
-     * Each of the `tile` labels should have their names set
-     * to "cell:i:j" where `i` is the row and `j` is the 
-     * column. For instance, the 1 in the top row of the 
-     * diagram would have the name of "cell:0:4".
+     * On boards small enough to carry them (see BoardView), each
+     * location has a named label "cell:i:j" where `i` is the row 
+     * and `j` is the column. For instance, the 1 in the top row of 
+     * the diagram would have the name of "cell:0:4".
      * 
      * The `flagLabel` should have its name set to "flags".
      * 
@@ -90,151 +131,480 @@ public class Minesweeper extends JPanel implements MouseListener, Observer {
      * @param mines 
      */
     public Minesweeper(int width, int height, int mines) {
-		setLayout(new GridLayout(height + 1, width));
+		this(width, height, mines, new Random().nextLong());
+    }
+    
+    /**
+     * This constructor creates a new board of the specified size and
+     * mines, with the mines placed by a generator seeded with `seed`.
+     * The mines are placed at the first uncover, away from the 
+     * uncovered location and its neighbors, so the first click always
+     * opens some of the board. The same seed and first click always
+     * give the same board.
+     * 
+     * @param width 
+     * @param height 
+     * @param mines 
+     * @param seed the seed of the board
+     */
+    public Minesweeper(int width, int height, int mines, long seed) {
+		this(width, height, mines, seed, Grid.Placement.SAFE_AREA);
+    }
+    
+    /**
+     * This constructor creates a new board as above, with the mines
+     * placed as `placement` says, for instance to replay a journal that
+     * was recorded with another placement.
+     * 
+     * @param width 
+     * @param height 
+     * @param mines 
+     * @param seed the seed of the board
+     * @param placement when and where to place the mines
+     */
+    public Minesweeper(int width, int height, int mines, long seed, Grid.Placement placement) {
+		this(new Grid(width, height, mines, new Random(seed), placement), seed);
+    }
+    
+    /**
+     * This constructor resumes a saved game, with the board as it was
+     * and the ticker at the saved elapsed time. The ticker starts again
+     * with the next click. A resumed game cannot be recorded, because
+     * the seed of its board is not known.
+     * 
+     * @param snapshot the saved game
+     */
+    public Minesweeper(GridSnapshot snapshot) {
+		this(snapshot.getGrid(), 0);
+		unseeded = true;
+		ticker.setSeconds(snapshot.getSeconds());
+    }
+    
+    private Minesweeper(Grid grid, long seed) {
+		setLayout(new BorderLayout());
 		
-		grid = new Grid(width, height, mines);
-		grid.addObserver(this);
-		flags = mines;
+		this.seed = seed;
+		this.grid = grid;
+		grid.addGridListener(this);
+		grid.addResultListener(this);
+		grid.setUndoEnabled(true);
+		flags = grid.getMines() - grid.getFlagCount();
 		
-		add(new JLabel("Flags"));
+		JPanel header = new JPanel(new BorderLayout());
+		JPanel flagPanel = new JPanel();
+		flagPanel.add(new JLabel("Flags"));
 		
 		flagLabel = new JLabel(String.valueOf(flags));
 		flagLabel.setName("flags");
-		add(flagLabel);
+		flagPanel.add(flagLabel);
+		header.add(flagPanel, BorderLayout.WEST);
 		
-		for(int i = 0; i < width - 4; i++) {
-			add(new JPanel());
-		}
+		JButton newGame = new JButton("New Game");
+		newGame.setName("newGame");
+		newGame.setFocusable(false);
+		newGame.addActionListener(event -> newGame());
+		JPanel newGamePanel = new JPanel();
+		newGamePanel.add(newGame);
+		header.add(newGamePanel, BorderLayout.CENTER);
 		
-		add(new JLabel("Time"));
+		JPanel timePanel = new JPanel();
+		timePanel.add(new JLabel("Time"));
 		
 		ticker = new Ticker();
-		add(ticker);
-		
-		tile = new JLabel[height][width];
+		timePanel.add(ticker);
+		header.add(timePanel, BorderLayout.EAST);
+		add(header, BorderLayout.NORTH);
 		
-		for(int i = 0; i < height; i++) {
-			for(int j = 0; j < width; j++) {
-				tile[i][j] = new JLabel();
-				tile[i][j].setName("cell:" + i + ":" + j);
-				tile[i][j].setPreferredSize(new Dimension(50, 50));
-				tile[i][j].setHorizontalAlignment(SwingConstants.CENTER);
-				tile[i][j].setBorder(BorderFactory.createRaisedBevelBorder());
-				tile[i][j].addMouseListener(this);
-				tile[i][j].setToolTipText("covered");
-				add(tile[i][j]);
-			}
+		queueLock = new Object();
+		moves = new int[64];
+		draining = new int[64];
+		pending = new MoveBatch();
+		board = new BoardView(grid, true);
+		board.setName("board");
+		board.addMouseListener(this);
+		board.addFrameListener(() -> flagLabel.setText(String.valueOf(flags)));
+		if((long)grid.getWidth() * grid.getHeight() > BoardView.NAMED_CELL_LIMIT) {
+			add(new JScrollPane(board), BorderLayout.CENTER);
+		}
+		else {
+			add(board, BorderLayout.CENTER);
 		}
+		bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), UNDO);
+		bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), REDO);
 		enabled = true;
     }
     
     /**
-     * This method should interpret the message from the grid.
-     *     String message = (String)arg;
-     * It should accomplish this by splitting the message at the 
-     * colon delimiters. Depending on the message, the interface 
-     * should be updated.
+     * This method makes a key, pressed anywhere in the window, queue a
+     * move that does not need a location.
      * 
-     * The tooltip text should be updated on the cells to reflect
-     * their current state (uncovered, covered, flagged, or mine).
+     * @param key the key stroke
+     * @param op the move (UNDO or REDO)
+     */
+    private void bindKey(KeyStroke key, int op) {
+		String name = op == UNDO ? "undo" : "redo";
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(key, name);
+		getActionMap().put(name, new AbstractAction() {
+			public void actionPerformed(ActionEvent event) {
+				if(enabled) {
+					enqueue(op, 0, 0);
+				}
+			}
+		});
+    }
+    
+    /**
+     * This method makes every new game take a ready board from the
+     * pool, and has the pool start preparing boards of this size. The
+     * pool is only worth giving to boards of a size it supports.
      * 
-     * @param o the observable (Grid object)
-     * @param arg (the message, which is actually a String)
+     * @param pool the pool, or null to generate boards as they are needed
      */
-    public void update(Observable o, Object arg) {
-		
-		String message = (String)arg;
-		Scanner s = new Scanner(message);
-		s.useDelimiter(":");
-		int row = s.nextInt();
-		int col = s.nextInt();
-		String m = s.next();
-		if("mine".equals(m)) {
-			tile[row][col].setIcon(MINE_ICON);
-			tile[row][col].setToolTipText("mine");
-			tile[row][col].setBorder(BorderFactory.createEmptyBorder());
-		}
-		else if("flag".equals(m)) {
-			tile[row][col].setIcon(FLAG_ICON);
-			tile[row][col].setToolTipText("flagged");
-			flags--;
-			flagLabel.setText(String.valueOf(flags));
-		}
-		else if("unflag".equals(m)) {
-			tile[row][col].setIcon(null);
-			tile[row][col].setToolTipText("covered");
-			flags++;
-			flagLabel.setText(String.valueOf(flags));
-			
+    public void setBoardPool(BoardPool pool) {
+		grid.setBoardPool(pool);
+    }
+    
+    /**
+     * This method abandons the game being played and starts a new one
+     * of the same size, as the New Game button does. A journal being 
+     * recorded is closed without an outcome, and the new game cannot be
+     * recorded, since its board does not come from the seed. The new 
+     * game is queued behind the moves already made, and must be started
+     * on the event dispatch thread.
+     */
+    public void newGame() {
+		ticker.reset();
+		enqueue(NEW_GAME, 0, 0);
+    }
+    
+    /**
+     * This method starts the new game on the worker thread.
+     */
+    private void startNewGame() {
+		if(journal != null) {
+			try {
+				journal.close();
+			}
+			catch(IOException e) {
+				System.err.println("Could not close the journal: " + e.getMessage());
+			}
+			journal = null;
 		}
-		else {
-			if(Integer.parseInt(m) > 0) {
-				tile[row][col].setText(m);
+		unseeded = true;
+		grid.reset();
+		flags = grid.getMines() - grid.getFlagCount();
+		board.refreshAll();
+    }
+    
+    /**
+     * This method takes back the last move, as Ctrl+Z does.
+     */
+    public void undo() {
+		enqueue(UNDO, 0, 0);
+    }
+    
+    /**
+     * This method makes the last undone move again, as Ctrl+Y does.
+     */
+    public void redo() {
+		enqueue(REDO, 0, 0);
+    }
+    
+    /**
+     * This method is called by the grid whenever the outcome of the 
+     * game changes. Once the game is won or lost, the last frame of the
+     * board is shown along with a dialog on the event dispatch thread,
+     * and then the program ends.
+     * 
+     * @param g the grid
+     * @param result the new result
+     */
+    public void resultChanged(Grid g, Grid.Result result) {
+		if(result != Grid.Result.NONE && journal != null) {
+			try {
+				journal.end(result);
+				journal.close();
+			}
+			catch(IOException e) {
+				System.err.println("Could not finish the journal: " + e.getMessage());
 			}
-			tile[row][col].setToolTipText("uncovered");
-			tile[row][col].setBorder(BorderFactory.createEmptyBorder());
+			journal = null;
 		}
-		
-		if(grid.getResult() == Grid.Result.LOSE) {
-			ticker.stop();
-			JOptionPane.showMessageDialog(this, "Game Over", "Game Over", JOptionPane.INFORMATION_MESSAGE);
-			System.exit(0);
+		if(result != Grid.Result.NONE) {
+			SwingUtilities.invokeLater(() -> {
+				board.flushFrame();
+				ticker.stop();
+				if(result == Grid.Result.LOSE) {
+					JOptionPane.showMessageDialog(this, "Game Over", "Game Over", JOptionPane.INFORMATION_MESSAGE);
+				}
+				else {
+					JOptionPane.showMessageDialog(this, "You won in " + ticker.getText(), "You Win!", JOptionPane.INFORMATION_MESSAGE);
+				}
+				System.exit(0);
+			});
+		}
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     * This method starts recording every move made from now on to a
+     * journal file. The journal is closed when the game ends.
+     * 
+     * @param path the journal file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalStateException if the game was not started from the seed
+     */
+    public void record(Path path) throws IOException {
+		if(unseeded) {
+			throw new IllegalStateException("only the game started from the seed can be recorded");
 		}
-		else if(grid.getResult() == Grid.Result.WIN) {
-			ticker.stop();
-			JOptionPane.showMessageDialog(this, "You won in " + ticker.getText(), "You Win!", JOptionPane.INFORMATION_MESSAGE);
-			System.exit(0);
+		MoveJournal.Writer writer = new MoveJournal.Writer(path, seed, grid.getWidth(), grid.getHeight(), grid.getMines(), grid.getPlacement());
+		WORKER.execute(() -> journal = writer);
+    }
+    
+    /**
+     * This method saves the game as it stands, with the elapsed time,
+     * so that it can be resumed later. The grid is saved on the worker
+     * thread once the moves queued before the call are applied, and the
+     * caller waits for it.
+     * 
+     * @param path the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+		int seconds = ticker.getSeconds();
+		try {
+			WORKER.submit(() -> {
+				GridSnapshot.save(grid, seconds, path);
+				return null;
+			}).get();
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException)e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while saving", e);
 		}
     }
     
+    /**
+     * This method waits until every move queued so far is applied and
+     * the board shows it. It must not be called on the event dispatch
+     * thread.
+     * 
+     * @throws Exception if the wait is interrupted or a move failed
+     */
+    void awaitIdle() throws Exception {
+		WORKER.submit(() -> {}).get();
+		SwingUtilities.invokeAndWait(board::flushFrame);
+    }
+    
+    /**
+     * This method plays a recorded game back on this board at the pace
+     * it was recorded, with the ticker running. The board must have
+     * been created with the size, mines, and seed of the journal. Clicks
+     * on the board are ignored while it plays, so the moves are applied
+     * on the event dispatch thread with the worker left idle.
+     * 
+     * @param recorded the journal to play
+     */
+    public void replay(MoveJournal recorded) {
+		enabled = false;
+		recorded.play(grid, ticker, null);
+    }
+    
+    /**
+     * These methods keep the flag count up to date in response to the
+     * grid. The label is set from the count at the end of each frame.
+     */
+    public void onFlag(int row, int col) {
+		flags--;
+    }
+    
+    public void onUnflag(int row, int col) {
+		flags++;
+    }
+    
     /**
      * This method shoud handle the left- and right-clicks on the
-     * labels. Remember that the very first time that a label is 
-     * clicked (left or right), the count-up timer should start.
+     * board. Remember that the very first time that a location is 
+     * clicked (left or right), the count-up timer should start. A 
+     * middle click chords.
+     * 
+     * The location is found from the pixel coordinates of the click,
+     * so this takes the same time on any size of board. Clicks are not
+     * applied to the grid right away. They are appended to a queue of
+     * moves, which is drained by a single task on the worker thread.
+     * A burst of clicks (from an auto-clicker, or a bot driving the
+     * interface) is then applied in one pass, and shown in one frame,
+     * instead of one grid update per queued event. Left clicks on
+     * uncovered locations chord when they are drained, and other clicks
+     * that would change nothing are dropped then.
      * 
      * @param event the clicking mouse event
      */
     public void mouseClicked(MouseEvent event) {
+		int row = board.rowAt(event.getY());
+		int col = board.colAt(event.getX());
+		if(row < 0 || col < 0 || enabled == false) {
+			return;
+		}
 		if(ticker.isRunning() == false) {
 			ticker.start();
 		}
 		
-		Point point = findSourceIndex(event);
 		if(event.getButton() == MouseEvent.BUTTON1) {
-			grid.uncoverAt(point.x, point.y);
+			enqueue(UNCOVER, row, col);
+		}
+		else if(event.getButton() == MouseEvent.BUTTON2) {
+			enqueue(CHORD, row, col);
 		}
 		else if(event.getButton() == MouseEvent.BUTTON3) {
-			if(grid.isFlagAt(point.x, point.y) == false && flags > 0) {
-				grid.placeFlagAt(point.x, point.y);
+			enqueue(TOGGLE_FLAG, row, col);
+		}
+    }
+    
+    /**
+     * This method appends a move to the queue and makes sure that a
+     * task to drain the queue is pending on the worker thread.
+     * 
+     * @param op the move (UNCOVER, TOGGLE_FLAG, CHORD, UNDO, REDO, or NEW_GAME)
+     * @param row 
+     * @param col 
+     */
+    private void enqueue(int op, int row, int col) {
+		synchronized(queueLock) {
+			if(moveCount + 3 > moves.length) {
+				moves = Arrays.copyOf(moves, moves.length * 2);
 			}
-			else if(grid.isFlagAt(point.x, point.y)) {
-				grid.removeFlagAt(point.x, point.y);
+			moves[moveCount++] = op;
+			moves[moveCount++] = row;
+			moves[moveCount++] = col;
+			if(drainPending) {
+				return;
 			}
+			drainPending = true;
 		}
-    }   
+		WORKER.execute(this::drain);
+    }
     
     /**
-     * This is a private convenience method that returns the point
-     * (x and y) representing the row and column of the label that
-     * was the source of the event. It should return null if no such
-     * label can be found (which should not be able to happen, but
-     * the compiler demands a return in all cases).
+     * This method applies every queued move to the grid, in order, on
+     * the worker thread. The queue is swapped for an empty one first,
+     * so that moves can be queued while these are applied. 
      * 
-     * @param event the mouse clicked event on a label
-     * @return the point (x is row, y is column) of the label
+     * Uncovers of covered locations are gathered into a MoveBatch and 
+     * applied together with `Grid.apply`, so a burst of them reaches the
+     * listeners as one region. Moves that depend on the state of the
+     * grid (a flag toggle, a chord, an undo) apply the batch gathered so
+     * far before they look. If a journal is open, the moves are recorded
+     * and written out together once the queue is empty.
      */
-    private Point findSourceIndex(MouseEvent event) {
-		for(int r = 0; r < tile.length; r++) {
-			for(int c = 0; c < tile[0].length; c++) {
-				if(event.getSource() == tile[r][c]) {
-					Point coordinates = new Point(r, c);
-					return coordinates;
+    private void drain() {
+		int[] batch;
+		int count;
+		synchronized(queueLock) {
+			batch = moves;
+			count = moveCount;
+			moves = draining;
+			draining = batch;
+			moveCount = 0;
+			drainPending = false;
+		}
+		for(int i = 0; i < count; i += 3) {
+			int row = batch[i + 1];
+			int col = batch[i + 2];
+			if(batch[i] == UNCOVER && grid.getLocation(row, col).getType() == Location.Type.COVERED) {
+				pending.uncover(row, col);
+				continue;
+			}
+			flush();
+			if(batch[i] == UNCOVER || batch[i] == CHORD) {
+				if(grid.getLocation(row, col).getType() == Location.Type.UNCOVERED) {
+					pending.chord(row, col);
 				}
 			}
+			else if(batch[i] == NEW_GAME) {
+				startNewGame();
+			}
+			else if(batch[i] == UNDO) {
+				if(grid.canUndo()) {
+					apply(MoveJournal.UNDO, 0, 0);
+				}
+			}
+			else if(batch[i] == REDO) {
+				if(grid.canRedo()) {
+					apply(MoveJournal.REDO, 0, 0);
+				}
+			}
+			else if(grid.isFlagAt(row, col) == false && flags > 0) {
+				pending.flag(row, col);
+			}
+			else if(grid.isFlagAt(row, col)) {
+				pending.unflag(row, col);
+			}
+		}
+		flush();
+		if(journal != null) {
+			try {
+				journal.flush();
+			}
+			catch(IOException e) {
+				System.err.println("Could not record the moves: " + e.getMessage());
+				journal = null;
+			}
 		}
-        return null;
     }
     
+    /**
+     * This method writes the gathered batch to the journal, if one is
+     * open, and then applies it to the grid. The moves are written first
+     * because applying them may end the game and close the journal.
+     */
+    private void flush() {
+		if(pending.isEmpty()) {
+			return;
+		}
+		if(journal != null) {
+			try {
+				journal.write(pending);
+			}
+			catch(IOException e) {
+				System.err.println("Could not record the moves: " + e.getMessage());
+				journal = null;
+			}
+		}
+		grid.apply(pending);
+		pending.clear();
+    }
+    
+    /**
+     * This method writes a move to the journal, if one is open, and
+     * then applies it to the grid, as `flush` does for a batch.
+     * 
+     * @param op the move (MoveJournal.UNDO or REDO)
+     * @param row 
+     * @param col 
+     */
+    private void apply(int op, int row, int col) {
+		if(journal != null) {
+			try {
+				journal.write(op, row, col);
+			}
+			catch(IOException e) {
+				System.err.println("Could not record the move: " + e.getMessage());
+				journal = null;
+			}
+		}
+		MoveJournal.apply(grid, op, row, col);
+    }
     
     /**
      * These methods do not need true implementations.
@@ -0,0 +1,120 @@
+package edu.jsu.mcis;
+
+import java.util.Arrays;
+
+
+/**
+ * This class is a list of moves to be applied to a Grid together with
+ * `Grid.apply`. The moves are kept in one int array as (op, row, col)
+ * triples, where `op` is MoveJournal.UNCOVER, FLAG, UNFLAG, or CHORD,
+ * so building a batch allocates nothing once the array has grown to
+ * its largest size, and a batch can be cleared and filled again for
+ * every turn of a bot or every message from a remote client.
+ *
+ * The locations are not checked here, since a batch does not know the
+ * size of the grid it is for. As with the single moves, the grid
+ * ignores moves on locations that are not legal indices.
+ */
+public final class MoveBatch {
+    private int[] moves;
+    private int size;
+
+    public MoveBatch() {
+		this(16);
+    }
+
+    /**
+     * This constructor creates an empty batch with room for `capacity`
+     * moves before it has to grow.
+     *
+     * @param capacity the number of moves to make room for
+     */
+    public MoveBatch(int capacity) {
+		if(capacity < 0) {
+			throw new IllegalArgumentException("capacity " + capacity);
+		}
+		moves = new int[Math.max(capacity, 1) * 3];
+    }
+
+    /**
+     * This method appends a move to the batch.
+     *
+     * @param op MoveJournal.UNCOVER, FLAG, UNFLAG, or CHORD
+     * @param row
+     * @param col
+     * @return this batch
+     */
+    public MoveBatch add(int op, int row, int col) {
+		if(op != MoveJournal.UNCOVER && op != MoveJournal.FLAG && op != MoveJournal.UNFLAG && op != MoveJournal.CHORD) {
+			throw new IllegalArgumentException("op " + op);
+		}
+		if(size * 3 + 3 > moves.length) {
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		}
+		moves[size * 3] = op;
+		moves[size * 3 + 1] = row;
+		moves[size * 3 + 2] = col;
+		size++;
+        return this;
+    }
+
+    public MoveBatch uncover(int row, int col) {
+        return add(MoveJournal.UNCOVER, row, col);
+    }
+
+    public MoveBatch flag(int row, int col) {
+        return add(MoveJournal.FLAG, row, col);
+    }
+
+    public MoveBatch unflag(int row, int col) {
+        return add(MoveJournal.UNFLAG, row, col);
+    }
+
+    public MoveBatch chord(int row, int col) {
+        return add(MoveJournal.CHORD, row, col);
+    }
+
+    /**
+     * This method empties the batch, keeping its array for reuse.
+     */
+    public void clear() {
+		size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getOp(int i) {
+        return moves[checked(i) * 3];
+    }
+
+    public int getRow(int i) {
+        return moves[checked(i) * 3 + 1];
+    }
+
+    public int getCol(int i) {
+        return moves[checked(i) * 3 + 2];
+    }
+
+    private int checked(int i) {
+		if(i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("move " + i + " of " + size);
+		}
+        return i;
+    }
+
+    /**
+     * This method returns the packed moves themselves, for the grid to
+     * read without a call per field.
+     *
+     * @return the (op, row, col) triples, of which the first `size()` are used
+     */
+    int[] moveArray() {
+        return moves;
+    }
+}
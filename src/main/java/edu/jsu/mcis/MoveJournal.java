@@ -0,0 +1,505 @@
+package edu.jsu.mcis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import javax.swing.Timer;
+
+
+/**
+ * This class is a recorded game of Minesweeper: the seed and size of
+ * the board, followed by every move that was made on it. Because a
+ * Grid built from the same seed (and with the same Grid.Placement, 
+ * given the same first uncover) always has the same mines, the game
+ * can be replayed exactly.
+ *
+ * Journals are written with a MoveJournal.Writer, which appends to the
+ * file through a buffered FileChannel. The file starts with a header
+ *
+ *     magic (4 bytes) seed (8) width (4) height (4) mines (4)
+ *     placement (4)
+ *
+ * in big-endian order, followed by one record per move. A record is
+ * three unsigned varints (7 bits per byte, low bits first, high bit
+ * set on every byte but the last):
+ *
+ *     (dt << 3) | op    row    col
+ *
+ * where `dt` is the number of milliseconds since the previous move and
+ * `op` is UNCOVER, FLAG, UNFLAG, UNDO, REDO, or CHORD (for UNDO and
+ * REDO, row and col are 0). A game that ended is closed with
+ * an END record, `(0 << 3) | END` followed by the ordinal of the
+ * Grid.Result. A typical move takes three or four bytes.
+ *
+ * A journal read back with `read` can be replayed at full speed with
+ * `replay`, which makes no allocations beyond the grid and a single
+ * MoveBatch, or at the recorded pace with `play`, which drives a 
+ * Ticker.
+ */
+public class MoveJournal {
+    public static final int UNCOVER = 0;
+    public static final int FLAG = 1;
+    public static final int UNFLAG = 2;
+    public static final int UNDO = 3;
+    public static final int REDO = 4;
+    public static final int CHORD = 5;
+    private static final int END = 7;
+    private static final int OP_BITS = 3;
+    private static final int OP_MASK = (1 << OP_BITS) - 1;
+    static final int MAGIC = 0x4D534A32;
+    static final int HEADER_SIZE = 28;
+    private static final int OLD_MAGIC = 0x4D534A31;
+    private static final int OLD_HEADER_SIZE = 24;
+
+    /**
+     * This class appends a game to a journal file as it is played.
+     */
+    public static class Writer implements Closeable {
+        private static final int BUFFER_SIZE = 1 << 16;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long last;
+        private boolean ended;
+
+        /**
+         * This constructor creates (or truncates) the journal file and
+         * writes its header.
+         *
+         * @param path the journal file
+         * @param seed the seed the grid was generated from
+         * @param width the width of the grid (number of columns)
+         * @param height the height of the grid (number of rows)
+         * @param mines the number of mines
+         * @throws IOException if the file cannot be written
+         */
+        public Writer(Path path, long seed, int width, int height, int mines) throws IOException {
+			this(path, seed, width, height, mines, Grid.Placement.IMMEDIATE);
+        }
+
+        /**
+         * This constructor creates (or truncates) the journal file for a
+         * grid with the given placement and writes its header.
+         *
+         * @param path the journal file
+         * @param seed the seed the grid was generated from
+         * @param width the width of the grid (number of columns)
+         * @param height the height of the grid (number of rows)
+         * @param mines the number of mines
+         * @param placement the placement of the grid
+         * @throws IOException if the file cannot be written
+         */
+        public Writer(Path path, long seed, int width, int height, int mines, Grid.Placement placement) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buffer.putInt(MAGIC).putLong(seed).putInt(width).putInt(height).putInt(mines).putInt(placement.ordinal());
+			last = -1;
+        }
+
+        /**
+         * This method appends a move, timed from the previous move (or
+         * at 0 for the first one).
+         *
+         * @param op UNCOVER, FLAG, UNFLAG, UNDO, REDO, or CHORD
+         * @param row
+         * @param col
+         * @throws IOException if the file cannot be written
+         */
+        public void write(int op, int row, int col) throws IOException {
+			long now = System.nanoTime();
+			long dt = last < 0 ? 0 : (now - last) / 1000000;
+			last = now;
+			write(op, row, col, (int)Math.min(dt, Integer.MAX_VALUE >> OP_BITS));
+        }
+
+        /**
+         * This method appends every move of a batch, the first timed from
+         * the previous move and the rest at 0, since they are applied 
+         * together. Moves on negative locations, which the grid ignores,
+         * are left out.
+         *
+         * @param batch the moves
+         * @throws IOException if the file cannot be written
+         */
+        public void write(MoveBatch batch) throws IOException {
+			boolean first = true;
+			for(int i = 0; i < batch.size(); i++) {
+				if(batch.getRow(i) < 0 || batch.getCol(i) < 0) {
+					continue;
+				}
+				if(first) {
+					write(batch.getOp(i), batch.getRow(i), batch.getCol(i));
+					first = false;
+				}
+				else {
+					write(batch.getOp(i), batch.getRow(i), batch.getCol(i), 0);
+				}
+			}
+        }
+
+        /**
+         * This method appends a move that was made `dt` milliseconds
+         * after the previous one.
+         *
+         * @param op UNCOVER, FLAG, UNFLAG, UNDO, REDO, or CHORD
+         * @param row
+         * @param col
+         * @param dt the milliseconds since the previous move
+         * @throws IOException if the file cannot be written
+         * @throws IllegalArgumentException if row, col, or dt is negative
+         */
+        public void write(int op, int row, int col, int dt) throws IOException {
+			if(op < UNCOVER || op > CHORD) {
+				throw new IllegalArgumentException("op " + op);
+			}
+			if(row < 0 || col < 0 || dt < 0) {
+				throw new IllegalArgumentException("move at (" + row + ", " + col + ") after " + dt + " ms");
+			}
+			if(ended) {
+				throw new IllegalStateException("the game has ended");
+			}
+			ensureRoom(15);
+			putVarint((dt << OP_BITS) | op);
+			putVarint(row);
+			putVarint(col);
+        }
+
+        /**
+         * This method appends the END record with the outcome of the
+         * game. No moves can be written after it.
+         *
+         * @param result the outcome of the game
+         * @throws IOException if the file cannot be written
+         */
+        public void end(Grid.Result result) throws IOException {
+			if(ended == false) {
+				ensureRoom(10);
+				putVarint(END);
+				putVarint(result.ordinal());
+				ended = true;
+			}
+        }
+
+        /**
+         * This method writes everything buffered so far to the file.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        public void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+        }
+
+        public void close() throws IOException {
+			try {
+				flush();
+			}
+			finally {
+				channel.close();
+			}
+        }
+
+        private void ensureRoom(int bytes) throws IOException {
+			if(buffer.remaining() < bytes) {
+				flush();
+			}
+        }
+
+        private void putVarint(int value) {
+			while((value & ~0x7F) != 0) {
+				buffer.put((byte)((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte)value);
+        }
+    }
+
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final int mines;
+    private final Grid.Placement placement;
+    private final int[] moves;
+    private final int size;
+    private final Grid.Result result;
+
+    private MoveJournal(long seed, int width, int height, int mines, Grid.Placement placement, int[] moves, int size, Grid.Result result) {
+		this.seed = seed;
+		this.width = width;
+		this.height = height;
+		this.mines = mines;
+		this.placement = placement;
+		this.moves = moves;
+		this.size = size;
+		this.result = result;
+    }
+
+    /**
+     * This method reads a whole journal file. A journal that was cut
+     * short (for instance because the program was killed) is read up to
+     * its last complete move, and its result is Result.NONE. Journals
+     * from before the placement was recorded are read as IMMEDIATE.
+     *
+     * @param path the journal file
+     * @return the journal
+     * @throws IOException if the file cannot be read or is not a journal
+     */
+    public static MoveJournal read(Path path) throws IOException {
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer = ByteBuffer.allocate((int)channel.size());
+			while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+			buffer.flip();
+		}
+		int magic = buffer.remaining() < OLD_HEADER_SIZE ? 0 : buffer.getInt();
+		if((magic != MAGIC || buffer.remaining() < HEADER_SIZE - 4) && magic != OLD_MAGIC) {
+			throw new IOException(path + " is not a move journal");
+		}
+		long seed = buffer.getLong();
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		int mines = buffer.getInt();
+		Grid.Placement placement = Grid.Placement.IMMEDIATE;
+		if(magic == MAGIC) {
+			int ordinal = buffer.getInt();
+			if(ordinal < 0 || ordinal >= Grid.Placement.values().length) {
+				throw new IOException(path + " has an unknown placement " + ordinal);
+			}
+			placement = Grid.Placement.values()[ordinal];
+		}
+		int[] moves = new int[Math.max(buffer.remaining(), 4)];
+		int size = 0;
+		Grid.Result result = Grid.Result.NONE;
+		while(buffer.hasRemaining()) {
+			int head = getVarint(buffer);
+			if(head < 0) {
+				break;
+			}
+			else if((head & OP_MASK) == END) {
+				int ordinal = getVarint(buffer);
+				if(ordinal >= 0 && ordinal < Grid.Result.values().length) {
+					result = Grid.Result.values()[ordinal];
+				}
+				break;
+			}
+			int row = getVarint(buffer);
+			int col = getVarint(buffer);
+			if(row < 0 || col < 0) {
+				break;
+			}
+			if(size + 4 > moves.length) {
+				moves = Arrays.copyOf(moves, moves.length * 2);
+			}
+			moves[size++] = head & OP_MASK;
+			moves[size++] = row;
+			moves[size++] = col;
+			moves[size++] = head >>> OP_BITS;
+		}
+        return new MoveJournal(seed, width, height, mines, placement, moves, size / 4, result);
+    }
+
+    /**
+     * This method reads an unsigned varint, or returns -1 if the buffer
+     * ends in the middle of it.
+     *
+     * @param buffer the buffer to read from
+     * @return the value, or -1
+     */
+    private static int getVarint(ByteBuffer buffer) {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			if(buffer.hasRemaining() == false) {
+				return -1;
+			}
+			int b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+        return -1;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMines() {
+        return mines;
+    }
+
+    public Grid.Placement getPlacement() {
+        return placement;
+    }
+
+    /**
+     * This method returns the outcome recorded in the END record, or
+     * Result.NONE if the journal has none.
+     *
+     * @return the recorded outcome
+     */
+    public Grid.Result getResult() {
+        return result;
+    }
+
+    public int getMoveCount() {
+        return size;
+    }
+
+    public int getOp(int i) {
+        return moves[i * 4];
+    }
+
+    public int getRow(int i) {
+        return moves[i * 4 + 1];
+    }
+
+    public int getCol(int i) {
+        return moves[i * 4 + 2];
+    }
+
+    /**
+     * This method returns how many milliseconds after the previous move
+     * the i-th move was made.
+     *
+     * @param i the move number
+     * @return the milliseconds before the move
+     */
+    public int getDelay(int i) {
+        return moves[i * 4 + 3];
+    }
+
+    /**
+     * This method returns a new Grid with the same mines as the grid
+     * the journal was recorded on, with undo enabled so that undone
+     * moves replay.
+     *
+     * @return a fresh copy of the recorded grid
+     */
+    public Grid newGrid() {
+		Grid grid = new Grid(width, height, mines, new Random(seed), placement);
+		grid.setUndoEnabled(true);
+        return grid;
+    }
+
+    /**
+     * This method applies every move to the grid, as fast as possible.
+     * The grid should be a fresh copy of the recorded grid, with undo
+     * enabled if any moves were undone. The moves between undos and 
+     * redos are applied as MoveBatches, so the listeners of the grid
+     * hear about each run of moves once.
+     *
+     * @param grid the grid to replay on
+     * @return the result of the grid after the last move
+     */
+    public Grid.Result replay(Grid grid) {
+		MoveBatch batch = new MoveBatch(size);
+		for(int i = 0; i < size; i++) {
+			int op = moves[i * 4];
+			if(op == UNDO || op == REDO) {
+				grid.apply(batch);
+				batch.clear();
+				apply(grid, op, 0, 0);
+			}
+			else {
+				batch.add(op, moves[i * 4 + 1], moves[i * 4 + 2]);
+			}
+		}
+		grid.apply(batch);
+        return grid.getResult();
+    }
+
+    /**
+     * This method replays the journal on a fresh grid and checks that it
+     * ends with the recorded result.
+     *
+     * @return whether the replay agrees with the journal
+     */
+    public boolean verify() {
+        return replay(newGrid()) == result;
+    }
+
+    /**
+     * This method replays the journal on the grid at the pace it was
+     * recorded at, using a javax.swing.Timer for each delay, so it must
+     * be called on the event dispatch thread and returns at once. The
+     * ticker is started with the first move and stopped after the last.
+     *
+     * @param grid the grid to replay on
+     * @param ticker the ticker to drive
+     * @param done run after the last move, or null
+     */
+    public void play(Grid grid, Ticker ticker, Runnable done) {
+		Timer timer = new Timer(0, null);
+		timer.setRepeats(false);
+		int[] next = new int[1];
+		timer.addActionListener(event -> {
+			int i = next[0]++;
+			if(i == 0) {
+				ticker.start();
+			}
+			apply(grid, moves[i * 4], moves[i * 4 + 1], moves[i * 4 + 2]);
+			if(next[0] < size) {
+				timer.setInitialDelay(moves[next[0] * 4 + 3]);
+				timer.start();
+			}
+			else {
+				ticker.stop();
+				if(done != null) {
+					done.run();
+				}
+			}
+		});
+		if(size > 0) {
+			timer.setInitialDelay(moves[3]);
+			timer.start();
+		}
+		else if(done != null) {
+			done.run();
+		}
+    }
+
+    /**
+     * This method applies one move to the grid.
+     *
+     * @param grid the grid
+     * @param op UNCOVER, FLAG, UNFLAG, UNDO, REDO, or CHORD
+     * @param row
+     * @param col
+     */
+    static void apply(Grid grid, int op, int row, int col) {
+		if(op == UNCOVER) {
+			grid.uncoverAt(row, col);
+		}
+		else if(op == FLAG) {
+			grid.placeFlagAt(row, col);
+		}
+		else if(op == UNFLAG) {
+			grid.removeFlagAt(row, col);
+		}
+		else if(op == UNDO) {
+			grid.undo();
+		}
+		else if(op == REDO) {
+			grid.redo();
+		}
+		else if(op == CHORD) {
+			grid.chordAt(row, col);
+		}
+    }
+}
@@ -0,0 +1,72 @@
+package edu.jsu.mcis;
+
+import java.util.*;
+
+
+/**
+ * This class keeps the original string messages of the Grid available
+ * to java.util.Observer objects. It listens to the grid's typed events
+ * and turns each one into a message of the form
+ *
+ *     row:col:info
+ *
+ * where `info` is `flag`, `unflag`, `cover`, `mine`, or the hint at
+ * (`row`, `col`). A region becomes one message holding one entry per
+ * location, separated by single spaces. The observers receive this 
+ * adapter (not the grid) as their Observable argument.
+ */
+class ObserverAdapter extends Observable implements GridListener {
+    
+    public void onUncovered(int row, int col, int hint) {
+		send(row + ":" + col + ":" + hint);
+    }
+    
+    public void onMine(int row, int col) {
+		send(row + ":" + col + ":" + "mine");
+    }
+    
+    public void onFlag(int row, int col) {
+		send(row + ":" + col + ":" + "flag");
+    }
+    
+    public void onUnflag(int row, int col) {
+		send(row + ":" + col + ":" + "unflag");
+    }
+    
+    public void onCovered(int row, int col) {
+		send(row + ":" + col + ":" + "cover");
+    }
+    
+    public void onRegion(Region region) {
+		StringBuilder message = new StringBuilder(region.size() * 8);
+		for(int i = 0; i < region.size(); i++) {
+			if(i > 0) {
+				message.append(' ');
+			}
+			message.append(region.getRow(i)).append(':').append(region.getCol(i)).append(':');
+			if(region.getType(i) == Location.Type.UNCOVERED) {
+				if(region.hasMine(i)) {
+					message.append("mine");
+				}
+				else {
+					message.append(region.getHint(i));
+				}
+			}
+			else if(region.getType(i) == Location.Type.FLAGGED) {
+				message.append("flag");
+			}
+			else if(region.isCovering()) {
+				message.append("cover");
+			}
+			else {
+				message.append("unflag");
+			}
+		}
+		send(message.toString());
+    }
+    
+    private void send(String message) {
+		setChanged();
+		notifyObservers(message);
+    }
+}
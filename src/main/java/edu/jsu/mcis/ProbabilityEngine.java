@@ -0,0 +1,497 @@
+package edu.jsu.mcis;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * This class computes, for every location of a Grid, the exact
+ * probability that it holds a mine given what a player can see: the
+ * uncovered locations, their hints, and the total number of mines from
+ * `Grid.getMines()`. Flags are not trusted; a flagged location counts
+ * as covered.
+ *
+ * The covered locations next to uncovered ones (the frontier) are split
+ * into independent components: two frontier locations are in the same
+ * component when some hint touches both. Each component's mine layouts
+ * are enumerated by backtracking, pruning any partial layout that gives
+ * a hint too many or too few mines, and counted by the number of mines
+ * they use. The components are enumerated in parallel on a ForkJoinPool,
+ * and the counts of a component are remembered, so a component that
+ * has not changed since the last call is not enumerated again.
+ *
+ * The components are then combined with the covered locations that are
+ * not on the frontier. A set of layouts that uses s mines on the
+ * frontier leaves the rest of the mines to the F other covered
+ * locations, which can happen in C(F, mines - s) ways. That binomial
+ * weights each layout. Only ratios of those weights are needed, so they
+ * are computed step by step from C(F, r + 1) / C(F, r) = (F - r) / (r + 1)
+ * and never overflow.
+ */
+public class ProbabilityEngine {
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * This class holds the result of enumerating one component. For
+     * each number of mines k, `counts[k]` is the (scaled) number of
+     * layouts with k mines, and `cellCounts[k][i]` is how many of
+     * those put a mine on the i-th location of the component.
+     */
+    private static final class Counts {
+        private final double[] counts;
+        private final double[][] cellCounts;
+
+        Counts(int size) {
+			counts = new double[size + 1];
+			cellCounts = new double[size + 1][size];
+        }
+    }
+
+    /**
+     * This class is one component of the frontier: its locations (as
+     * flat indices) and, for each hint that touches it, the hint and
+     * the positions of the locations it touches within `cells`.
+     */
+    private static final class Component {
+        private final int[] cells;
+        private final int[] hints;
+        private final int[][] touches;
+        private final Key key;
+
+        Component(int[] cells, int[] hints, int[][] touches, int[] hintCells) {
+			this.cells = cells;
+			this.hints = hints;
+			this.touches = touches;
+			int[] signature = new int[cells.length + hints.length * 2 + 1];
+			int n = 0;
+			signature[n++] = cells.length;
+			for(int cell : cells) {
+				signature[n++] = cell;
+			}
+			for(int h = 0; h < hints.length; h++) {
+				signature[n++] = hintCells[h];
+				signature[n++] = hints[h];
+			}
+			key = new Key(signature);
+        }
+    }
+
+    /**
+     * This class wraps an int array so that it can be used as a key.
+     */
+    private static final class Key {
+        private final int[] values;
+        private final int hash;
+
+        Key(int[] values) {
+			this.values = values;
+			hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(values, ((Key)other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * This class enumerates the layouts of one component.
+     */
+    private static final class Enumeration extends RecursiveTask<Counts> {
+        private final Component component;
+        private final int[][] hintsOf;
+        private final int[] need;
+        private final int[] left;
+        private final boolean[] mine;
+        private Counts result;
+
+        Enumeration(Component component) {
+			this.component = component;
+			int size = component.cells.length;
+			need = component.hints.clone();
+			left = new int[component.hints.length];
+			mine = new boolean[size];
+			int[] degree = new int[size];
+			for(int h = 0; h < component.touches.length; h++) {
+				left[h] = component.touches[h].length;
+				for(int i : component.touches[h]) {
+					degree[i]++;
+				}
+			}
+			hintsOf = new int[size][];
+			for(int i = 0; i < size; i++) {
+				hintsOf[i] = new int[degree[i]];
+			}
+			for(int h = 0; h < component.touches.length; h++) {
+				for(int i : component.touches[h]) {
+					hintsOf[i][--degree[i]] = h;
+				}
+			}
+        }
+
+        @Override
+        protected Counts compute() {
+			result = new Counts(component.cells.length);
+			search(0, 0);
+			double max = 0;
+			for(double count : result.counts) {
+				max = Math.max(max, count);
+			}
+			if(max > 0) {
+				for(int k = 0; k < result.counts.length; k++) {
+					result.counts[k] /= max;
+					for(int i = 0; i < result.cellCounts[k].length; i++) {
+						result.cellCounts[k][i] /= max;
+					}
+				}
+			}
+			return result;
+        }
+
+        /**
+         * This method tries both values for location i and recurses. A
+         * value is abandoned as soon as some hint has more mines than
+         * it allows or too few locations left to reach it.
+         *
+         * @param i the position in the component to assign next
+         * @param mines the number of mines assigned so far
+         */
+        private void search(int i, int mines) {
+			if(i == mine.length) {
+				result.counts[mines]++;
+				for(int j = 0; j < mine.length; j++) {
+					if(mine[j]) {
+						result.cellCounts[mines][j]++;
+					}
+				}
+				return;
+			}
+			for(int value = 0; value <= 1; value++) {
+				boolean possible = true;
+				for(int h : hintsOf[i]) {
+					left[h]--;
+					need[h] -= value;
+					if(need[h] < 0 || need[h] > left[h]) {
+						possible = false;
+					}
+				}
+				if(possible) {
+					mine[i] = value == 1;
+					search(i + 1, mines + value);
+					mine[i] = false;
+				}
+				for(int h : hintsOf[i]) {
+					left[h]++;
+					need[h] += value;
+				}
+			}
+        }
+    }
+
+    private final Grid grid;
+    private final ForkJoinPool pool;
+    private final Map<Key, Counts> cache;
+
+    public ProbabilityEngine(Grid grid) {
+		this(grid, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * This constructor creates an engine for the grid that enumerates
+     * components on the given pool.
+     *
+     * @param grid the grid to analyze
+     * @param pool the pool to enumerate components on
+     */
+    public ProbabilityEngine(Grid grid, ForkJoinPool pool) {
+		this.grid = grid;
+		this.pool = pool;
+		cache = new LinkedHashMap<Key, Counts>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Counts> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+    }
+
+    /**
+     * This method returns the probability that each location holds a
+     * mine, indexed by flat index (row * width + col). Uncovered
+     * locations have probability 0.
+     *
+     * @return the mine probability of every location
+     * @throws IllegalStateException if no layout fits the hints
+     */
+    public double[] compute() {
+		int width = grid.getWidth();
+		int total = width * grid.getHeight();
+		double[] probability = new double[total];
+		List<Component> components = findComponents();
+		int frontier = 0;
+		for(Component component : components) {
+			frontier += component.cells.length;
+		}
+		int covered = 0;
+		for(int i = 0; i < total; i++) {
+			if(isUncovered(i) == false) {
+				covered++;
+			}
+		}
+		int others = covered - frontier;
+		int mines = grid.getMines();
+
+		Counts[] counts = enumerate(components);
+
+		// prefix[j] and suffix[j] are the distributions of frontier mine
+		// counts over components [0, j) and [j, m), so the distribution
+		// without component j is prefix[j] * suffix[j + 1].
+		int m = components.size();
+		double[][] prefix = new double[m + 1][];
+		double[][] suffix = new double[m + 1][];
+		prefix[0] = new double[] {1};
+		suffix[m] = new double[] {1};
+		for(int j = 0; j < m; j++) {
+			prefix[j + 1] = convolve(prefix[j], counts[j].counts);
+		}
+		for(int j = m - 1; j >= 0; j--) {
+			suffix[j] = convolve(counts[j].counts, suffix[j + 1]);
+		}
+		double[] all = prefix[m];
+		double[] weight = weights(all.length - 1, others, mines);
+
+		double normal = 0;
+		double interior = 0;
+		for(int s = 0; s < all.length; s++) {
+			normal += all[s] * weight[s];
+			if(others > 0) {
+				interior += all[s] * weight[s] * (mines - s) / others;
+			}
+		}
+		if(normal == 0) {
+			throw new IllegalStateException("no mine layout fits the uncovered hints");
+		}
+		for(int i = 0; i < total; i++) {
+			if(isUncovered(i) == false) {
+				probability[i] = interior / normal;
+			}
+		}
+		for(int j = 0; j < m; j++) {
+			double[] rest = convolve(prefix[j], suffix[j + 1]);
+			int[] cells = components.get(j).cells;
+			double[][] cellCounts = counts[j].cellCounts;
+			for(int i = 0; i < cells.length; i++) {
+				double sum = 0;
+				for(int k = 0; k < cellCounts.length; k++) {
+					if(cellCounts[k][i] == 0) {
+						continue;
+					}
+					for(int r = 0; r < rest.length; r++) {
+						sum += cellCounts[k][i] * rest[r] * weight[k + r];
+					}
+				}
+				probability[cells[i]] = sum / normal;
+			}
+		}
+        return probability;
+    }
+
+    /**
+     * This method returns the counts of every component, taking them
+     * from the cache when possible and enumerating the rest in parallel.
+     *
+     * @param components the components of the frontier
+     * @return the counts of each component, in the same order
+     */
+    private Counts[] enumerate(List<Component> components) {
+		Counts[] counts = new Counts[components.size()];
+		List<Enumeration> tasks = new ArrayList<>();
+		List<Integer> positions = new ArrayList<>();
+		for(int j = 0; j < components.size(); j++) {
+			counts[j] = cache.get(components.get(j).key);
+			if(counts[j] == null) {
+				tasks.add(new Enumeration(components.get(j)));
+				positions.add(j);
+			}
+		}
+		if(tasks.size() == 1) {
+			counts[positions.get(0)] = tasks.get(0).compute();
+		}
+		else if(tasks.size() > 1) {
+			pool.invoke(new RecursiveTask<Void>() {
+				@Override
+				protected Void compute() {
+					invokeAll(tasks);
+					return null;
+				}
+			});
+			for(int t = 0; t < tasks.size(); t++) {
+				counts[positions.get(t)] = tasks.get(t).join();
+			}
+		}
+		for(int t = 0; t < tasks.size(); t++) {
+			cache.put(components.get(positions.get(t)).key, counts[positions.get(t)]);
+		}
+        return counts;
+    }
+
+    /**
+     * This method finds the frontier and splits it into components with
+     * a union-find over the covered neighbors of each hint.
+     *
+     * @return the components of the frontier
+     */
+    private List<Component> findComponents() {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int total = width * height;
+		int[] parent = new int[total];
+		Arrays.fill(parent, -1);
+		List<Integer> hintCells = new ArrayList<>();
+		for(int index = 0; index < total; index++) {
+			if(isUncovered(index) == false) {
+				continue;
+			}
+			int first = -1;
+			int row = index / width;
+			int col = index % width;
+			for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+				for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+					int neighbor = r * width + c;
+					if(isUncovered(neighbor)) {
+						continue;
+					}
+					if(parent[neighbor] < 0) {
+						parent[neighbor] = neighbor;
+					}
+					if(first < 0) {
+						first = neighbor;
+					}
+					else {
+						parent[find(parent, neighbor)] = find(parent, first);
+					}
+				}
+			}
+			if(first >= 0) {
+				hintCells.add(index);
+			}
+		}
+
+		Map<Integer, List<Integer>> cellsOf = new LinkedHashMap<>();
+		for(int index = 0; index < total; index++) {
+			if(parent[index] >= 0) {
+				cellsOf.computeIfAbsent(find(parent, index), k -> new ArrayList<>()).add(index);
+			}
+		}
+		Map<Integer, List<Integer>> hintsOf = new HashMap<>();
+		for(int index : hintCells) {
+			int row = index / width;
+			int col = index % width;
+			int root = -1;
+			for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1) && root < 0; r++) {
+				for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1) && root < 0; c++) {
+					if(isUncovered(r * width + c) == false) {
+						root = find(parent, r * width + c);
+					}
+				}
+			}
+			hintsOf.computeIfAbsent(root, k -> new ArrayList<>()).add(index);
+		}
+
+		List<Component> components = new ArrayList<>();
+		for(Map.Entry<Integer, List<Integer>> entry : cellsOf.entrySet()) {
+			List<Integer> cellList = entry.getValue();
+			int[] cells = new int[cellList.size()];
+			Map<Integer, Integer> position = new HashMap<>();
+			for(int i = 0; i < cells.length; i++) {
+				cells[i] = cellList.get(i);
+				position.put(cells[i], i);
+			}
+			List<Integer> hintList = hintsOf.get(entry.getKey());
+			int[] hints = new int[hintList.size()];
+			int[] hintIndex = new int[hintList.size()];
+			int[][] touches = new int[hintList.size()][];
+			for(int h = 0; h < hints.length; h++) {
+				int index = hintList.get(h);
+				hintIndex[h] = index;
+				hints[h] = grid.cellAt(index) & Location.HINT_MASK;
+				int row = index / width;
+				int col = index % width;
+				int[] touched = new int[8];
+				int n = 0;
+				for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+					for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+						Integer p = position.get(r * width + c);
+						if(p != null) {
+							touched[n++] = p;
+						}
+					}
+				}
+				touches[h] = Arrays.copyOf(touched, n);
+			}
+			components.add(new Component(cells, hints, touches, hintIndex));
+		}
+        return components;
+    }
+
+    private static int find(int[] parent, int index) {
+		while(parent[index] != index) {
+			parent[index] = parent[parent[index]];
+			index = parent[index];
+		}
+        return index;
+    }
+
+    private static double[] convolve(double[] a, double[] b) {
+		double[] result = new double[a.length + b.length - 1];
+		for(int i = 0; i < a.length; i++) {
+			if(a[i] == 0) {
+				continue;
+			}
+			for(int j = 0; j < b.length; j++) {
+				result[i + j] += a[i] * b[j];
+			}
+		}
+        return result;
+    }
+
+    /**
+     * This method returns, for each number s of frontier mines from 0
+     * to maxFrontier, a weight proportional to C(others, mines - s),
+     * or 0 where that is impossible. The largest weight is 1.
+     *
+     * @param maxFrontier the largest number of frontier mines
+     * @param others the number of covered locations off the frontier
+     * @param mines the total number of mines
+     * @return the relative weight of each frontier mine count
+     */
+    private static double[] weights(int maxFrontier, int others, int mines) {
+		double[] log = new double[maxFrontier + 1];
+		Arrays.fill(log, Double.NEGATIVE_INFINITY);
+		int top = Math.min(maxFrontier, mines);
+		if(top < mines - others) {
+			return new double[maxFrontier + 1];
+		}
+		log[top] = 0;
+		double max = 0;
+		for(int s = top - 1; s >= 0 && mines - s <= others; s--) {
+			int r = mines - s - 1;
+			log[s] = log[s + 1] + Math.log((double)(others - r) / (r + 1));
+			max = Math.max(max, log[s]);
+		}
+		double[] weight = new double[maxFrontier + 1];
+		for(int s = 0; s <= maxFrontier; s++) {
+			weight[s] = Math.exp(log[s] - max);
+		}
+        return weight;
+    }
+
+    private boolean isUncovered(int index) {
+        return (grid.cellAt(index) & Location.TYPE_MASK) == Location.UNCOVERED;
+    }
+}
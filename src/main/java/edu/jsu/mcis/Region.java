@@ -0,0 +1,124 @@
+package edu.jsu.mcis;
+
+
+/**
+ * This class represents a group of grid locations that were changed
+ * together by one action. It is a view onto a buffer that the grid 
+ * reuses, so it is only valid during the GridListener callback that
+ * received it. A listener that needs the locations afterward should 
+ * copy them out.
+ *
+ * A region of a ChunkedGrid holds its locations as packed (row, col)
+ * pairs instead, since an unbounded board has no flat indices.
+ */
+public final class Region {
+    private final Grid grid;
+    private final ChunkedGrid chunked;
+    private int[] cells;
+    private long[] points;
+    private int size;
+    private boolean covering;
+    
+    Region(Grid grid) {
+		this.grid = grid;
+		this.chunked = null;
+    }
+    
+    Region(ChunkedGrid chunked) {
+		this.grid = null;
+		this.chunked = chunked;
+    }
+    
+    /**
+     * This method points the region at the first `size` flat indices
+     * of the given buffer.
+     * 
+     * @param cells the flat indices (row * width + col)
+     * @param size the number of locations in the region
+     */
+    void set(int[] cells, int size) {
+		set(cells, size, false);
+    }
+    
+    /**
+     * This method points the region at the first `size` flat indices
+     * of the given buffer, and records whether those locations were
+     * just covered again by an undo.
+     * 
+     * @param cells the flat indices (row * width + col)
+     * @param size the number of locations in the region
+     * @param covering whether the locations were covered again
+     */
+    void set(int[] cells, int size, boolean covering) {
+		this.cells = cells;
+		this.size = size;
+		this.covering = covering;
+    }
+    
+    /**
+     * This method points the region of a ChunkedGrid at the first 
+     * `size` locations of the given buffer.
+     * 
+     * @param points the locations, each packed as (row << 32) | col
+     * @param size the number of locations in the region
+     */
+    void set(long[] points, int size) {
+		this.points = points;
+		this.size = size;
+		this.covering = false;
+    }
+    
+    /**
+     * This method returns true if the region is an undone uncover, so
+     * that its covered locations were uncovered before and not flagged.
+     * 
+     * @return whether the locations were covered again
+     */
+    public boolean isCovering() {
+        return covering;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * This method returns the flat index (row * width + col) of the
+     * i-th location of the region. The locations of a ChunkedGrid have
+     * no flat index.
+     * 
+     * @param i 
+     * @return the flat index of the i-th location
+     * @throws UnsupportedOperationException if the region is of a ChunkedGrid
+     */
+    public int getIndex(int i) {
+		if(grid == null) {
+			throw new UnsupportedOperationException("a ChunkedGrid has no flat indices");
+		}
+        return cells[i];
+    }
+    
+    public int getRow(int i) {
+        return grid == null ? (int)(points[i] >> 32) : cells[i] / grid.getWidth();
+    }
+    
+    public int getCol(int i) {
+        return grid == null ? (int)points[i] : cells[i] % grid.getWidth();
+    }
+    
+    public Location.Type getType(int i) {
+        return Location.typeOf(cellAt(i));
+    }
+    
+    public boolean hasMine(int i) {
+        return (cellAt(i) & Location.MINE) != 0;
+    }
+    
+    public int getHint(int i) {
+        return cellAt(i) & Location.HINT_MASK;
+    }
+    
+    private int cellAt(int i) {
+        return grid == null ? chunked.cellAt(getRow(i), getCol(i)) : grid.cellAt(cells[i]);
+    }
+}
@@ -0,0 +1,246 @@
+package edu.jsu.mcis;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+
+/**
+ * This class plays many games of Minesweeper without a user interface,
+ * so that the difficulty of a board size or the quality of a strategy
+ * can be measured over millions of games.
+ *
+ * Game number i is played on the board generated from seed
+ * `firstSeed + i`, so a run is repeatable and two strategies can be
+ * compared on exactly the same boards. The games are spread over a
+ * fixed pool of threads, one per core by default. Each thread creates
+ * one Grid and one Strategy and reuses them for every game it plays:
+ * before each game it reseeds the grid's generator and calls
+ * `reset()`, so nothing is allocated per game.
+ *
+ * The running totals (games, wins, losses, clicks, and time) are
+ * shared through LongAdders, and a Summary of them can be handed to a
+ * progress callback at a fixed interval while the run is going.
+ */
+public class Simulator {
+    private static final int BLOCK = 256;
+
+    /**
+     * This interface is implemented by the players of the simulation.
+     * Each thread gets its own Strategy, so a Strategy does not need
+     * to be thread-safe.
+     */
+    public interface Strategy {
+        /**
+         * This method plays a freshly reset grid until the game is won
+         * or lost, or until the strategy gives up.
+         *
+         * @param grid the grid to play
+         * @return the number of clicks made
+         */
+        int play(Grid grid);
+    }
+
+    /**
+     * This class is a snapshot of the totals of a run.
+     */
+    public static final class Summary {
+        private final long games;
+        private final long wins;
+        private final long losses;
+        private final long clicks;
+        private final long nanos;
+
+        Summary(long games, long wins, long losses, long clicks, long nanos) {
+			this.games = games;
+			this.wins = wins;
+			this.losses = losses;
+			this.clicks = clicks;
+			this.nanos = nanos;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getWins() {
+            return wins;
+        }
+
+        public long getLosses() {
+            return losses;
+        }
+
+        public long getClicks() {
+            return clicks;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (double)wins / games;
+        }
+
+        public double getClicksPerGame() {
+            return games == 0 ? 0 : (double)clicks / games;
+        }
+
+        public double getNanosPerGame() {
+            return games == 0 ? 0 : (double)nanos / games;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games, %.2f%% won, %d lost, %.1f clicks/game, %.1f us/game",
+                                 games, getWinRate() * 100, losses, getClicksPerGame(), getNanosPerGame() / 1000);
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int mines;
+    private final Supplier<? extends Strategy> strategies;
+    private int threads;
+    private final LongAdder games;
+    private final LongAdder wins;
+    private final LongAdder losses;
+    private final LongAdder clicks;
+    private final LongAdder nanos;
+
+    /**
+     * This constructor creates a simulator for boards of the given
+     * size and mines. Every thread gets its own Strategy from
+     * `strategies`.
+     *
+     * @param width the width of the grid (number of columns)
+     * @param height the height of the grid (number of rows)
+     * @param mines the number of mines
+     * @param strategies the supplier of strategies
+     */
+    public Simulator(int width, int height, int mines, Supplier<? extends Strategy> strategies) {
+		if(width <= 0 || height <= 0 || mines < 0 || mines > (long)width * height) {
+			throw new IllegalArgumentException(width + "x" + height + " with " + mines + " mines");
+		}
+		this.width = width;
+		this.height = height;
+		this.mines = mines;
+		this.strategies = strategies;
+		threads = Runtime.getRuntime().availableProcessors();
+		games = new LongAdder();
+		wins = new LongAdder();
+		losses = new LongAdder();
+		clicks = new LongAdder();
+		nanos = new LongAdder();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+		if(threads <= 0) {
+			throw new IllegalArgumentException(threads + " threads");
+		}
+		this.threads = threads;
+    }
+
+    /**
+     * This method returns the totals of the games played so far in the
+     * current (or last) run.
+     *
+     * @return a snapshot of the totals
+     */
+    public Summary getSummary() {
+        return new Summary(games.sum(), wins.sum(), losses.sum(), clicks.sum(), nanos.sum());
+    }
+
+    public Summary run(long firstSeed, long count) throws InterruptedException {
+        return run(firstSeed, count, null, 0);
+    }
+
+    /**
+     * This method plays `count` games, on the boards generated from
+     * seeds `firstSeed` to `firstSeed + count - 1`, and waits for them
+     * to finish. The totals start from zero. While it waits, it hands
+     * a Summary to `progress` every `intervalMillis` milliseconds.
+     *
+     * @param firstSeed the seed of the first board
+     * @param count the number of games to play
+     * @param progress the progress callback, or null
+     * @param intervalMillis the time between progress callbacks
+     * @return the totals of the run
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public Summary run(long firstSeed, long count, Consumer<Summary> progress, long intervalMillis) throws InterruptedException {
+		games.reset();
+		wins.reset();
+		losses.reset();
+		clicks.reset();
+		nanos.reset();
+		AtomicLong next = new AtomicLong();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for(int t = 0; t < threads; t++) {
+			pool.execute(() -> work(firstSeed, count, next));
+		}
+		pool.shutdown();
+		try {
+			if(progress == null || intervalMillis <= 0) {
+				while(pool.awaitTermination(1, TimeUnit.DAYS) == false);
+			}
+			else {
+				while(pool.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS) == false) {
+					progress.accept(getSummary());
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+        return getSummary();
+    }
+
+    /**
+     * This method is the body of each thread. It claims blocks of game
+     * numbers until every game has been claimed, and plays them on one
+     * grid that it reseeds and resets for every game.
+     *
+     * @param firstSeed the seed of the first board
+     * @param count the number of games in the run
+     * @param next the next game number to claim
+     */
+    private void work(long firstSeed, long count, AtomicLong next) {
+		Random random = new Random(firstSeed);
+		Grid grid = new Grid(width, height, mines, random);
+		Strategy strategy = strategies.get();
+		long start;
+		while((start = next.getAndAdd(BLOCK)) < count) {
+			long end = Math.min(start + BLOCK, count);
+			for(long game = start; game < end; game++) {
+				if(Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				long before = System.nanoTime();
+				random.setSeed(firstSeed + game);
+				grid.reset();
+				int made = strategy.play(grid);
+				nanos.add(System.nanoTime() - before);
+				clicks.add(made);
+				Grid.Result result = grid.getResult();
+				if(result == Grid.Result.WIN) {
+					wins.increment();
+				}
+				else if(result == Grid.Result.LOSE) {
+					losses.increment();
+				}
+				games.increment();
+			}
+		}
+    }
+}
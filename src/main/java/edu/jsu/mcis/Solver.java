@@ -0,0 +1,366 @@
+package edu.jsu.mcis;
+
+import java.util.*;
+
+
+/**
+ * This class deduces the locations of a Grid that are certainly safe or
+ * certainly mined, using only what a player can see: which locations
+ * are uncovered and the hints on them. It never looks at the mines.
+ *
+ * Every uncovered location with a hint is a constraint: its hint, minus
+ * the neighbors already known to be mines, is the number of mines among
+ * its unknown covered neighbors. Two rules are applied:
+ *
+ *     single point: if that number is 0, every unknown neighbor is
+ *         safe; if it equals the number of unknown neighbors, they
+ *         are all mines.
+ *     subset/difference: for two constraints A and B that are at most
+ *         two locations apart, if A needs exactly as many more mines
+ *         than B as A has unknown neighbors that B does not, then
+ *         those are all mines and the unknown neighbors of B that A
+ *         does not share are all safe. (When A's unknowns are a
+ *         subset of B's this is the usual subset rule.)
+ *
+ * The unknown neighbors of a pair of constraints are packed into bit
+ * masks over the 7-by-7 window around the first one, so each pair is
+ * compared with a few long operations.
+ *
+ * The solver is a GridListener. When the grid uncovers locations, only
+ * the constraints in their neighborhood are put on a worklist, and when
+ * the solver learns something about a location, only the constraints
+ * around that location are put back on it. Nothing rescans the board.
+ * After the grid is reset, `reset()` must be called. When an uncover is
+ * undone, the solver starts over by itself, since the constraints it
+ * was built from are no longer visible.
+ */
+public class Solver implements GridListener {
+    private static final byte UNKNOWN = 0;
+    private static final byte SAFE = 1;
+    private static final byte MINE = 2;
+    private static final int WINDOW = 7;
+
+    private final Grid grid;
+    private final int width;
+    private final int height;
+    private byte[] known;
+    private long[] queued;
+    private int[] work;
+    private int workCount;
+    private int[] safe;
+    private int safeHead;
+    private int safeCount;
+    private int[] mines;
+    private int mineHead;
+    private int mineCount;
+    private int knownMines;
+
+    /**
+     * This constructor creates a solver for the grid, registers it as a
+     * listener, and puts every constraint that is already uncovered on
+     * the worklist.
+     *
+     * @param grid the grid to solve
+     */
+    public Solver(Grid grid) {
+		this.grid = grid;
+		width = grid.getWidth();
+		height = grid.getHeight();
+		known = new byte[width * height];
+		queued = new long[(width * height + 63) >> 6];
+		work = new int[64];
+		safe = new int[64];
+		mines = new int[64];
+		grid.addGridListener(this);
+		reset();
+    }
+
+    /**
+     * This method forgets everything the solver has deduced and starts
+     * over from the locations that are currently uncovered. It must be
+     * called after the grid is reset.
+     */
+    public void reset() {
+		Arrays.fill(known, UNKNOWN);
+		Arrays.fill(queued, 0L);
+		workCount = 0;
+		safeHead = 0;
+		safeCount = 0;
+		mineHead = 0;
+		mineCount = 0;
+		knownMines = 0;
+		for(int i = 0; i < known.length; i++) {
+			if(isUncovered(i)) {
+				enqueue(i);
+			}
+		}
+    }
+
+    /**
+     * This method applies the rules until the worklist is empty.
+     *
+     * @return the number of locations newly found to be safe or mined
+     */
+    public int solve() {
+		int before = safeCount + mineCount;
+		while(workCount > 0) {
+			int index = work[--workCount];
+			queued[index >> 6] &= ~(1L << index);
+			examine(index);
+		}
+        return safeCount + mineCount - before;
+    }
+
+    /**
+     * This method returns the flat index (row * width + col) of the next
+     * location known to be safe that is still covered, or -1 if there
+     * is none. Each location is returned only once.
+     *
+     * @return the flat index of a safe location, or -1
+     */
+    public int nextSafe() {
+		while(safeHead < safeCount) {
+			int index = safe[safeHead++];
+			if(isUncovered(index) == false) {
+				return index;
+			}
+		}
+        return -1;
+    }
+
+    /**
+     * This method returns the flat index (row * width + col) of the next
+     * location known to be a mine, or -1 if there is none. Each location
+     * is returned only once.
+     *
+     * @return the flat index of a mined location, or -1
+     */
+    public int nextMine() {
+		if(mineHead < mineCount) {
+			return mines[mineHead++];
+		}
+        return -1;
+    }
+
+    public boolean isKnownSafe(int row, int col) {
+        return known[row * width + col] == SAFE;
+    }
+
+    public boolean isKnownMine(int row, int col) {
+        return known[row * width + col] == MINE;
+    }
+
+    /**
+     * This method returns how many locations the solver knows to be
+     * mines.
+     *
+     * @return the number of known mines
+     */
+    public int getKnownMineCount() {
+        return knownMines;
+    }
+
+    /**
+     * These methods put the constraints around newly uncovered
+     * locations on the worklist.
+     */
+    public void onUncovered(int row, int col, int hint) {
+		uncovered(row * width + col);
+    }
+
+    public void onCovered(int row, int col) {
+		reset();
+    }
+
+    public void onRegion(Region region) {
+		if(region.isCovering()) {
+			reset();
+			return;
+		}
+		for(int i = 0; i < region.size(); i++) {
+			if(region.getType(i) == Location.Type.UNCOVERED && region.hasMine(i) == false) {
+				uncovered(region.getIndex(i));
+			}
+		}
+    }
+
+    private void uncovered(int index) {
+		if(known[index] == UNKNOWN) {
+			known[index] = SAFE;
+		}
+		enqueueAround(index);
+    }
+
+    /**
+     * This method applies both rules to the constraint at `index`.
+     *
+     * @param index the flat index of an uncovered location
+     */
+    private void examine(int index) {
+		long unknownA = unknownMask(index, index);
+		if(unknownA == 0) {
+			return;
+		}
+		int remainingA = remaining(index);
+		int countA = Long.bitCount(unknownA);
+		if(remainingA == 0) {
+			mark(index, unknownA, SAFE);
+			return;
+		}
+		else if(remainingA == countA) {
+			mark(index, unknownA, MINE);
+			return;
+		}
+		int row = index / width;
+		int col = index % width;
+		for(int r = Math.max(row - 2, 0); r <= Math.min(row + 2, height - 1); r++) {
+			for(int c = Math.max(col - 2, 0); c <= Math.min(col + 2, width - 1); c++) {
+				int other = r * width + c;
+				if(other == index || isUncovered(other) == false) {
+					continue;
+				}
+				long unknownB = unknownMask(index, other);
+				if(unknownB == 0 || (unknownA & unknownB) == 0) {
+					continue;
+				}
+				long onlyA = unknownA & ~unknownB;
+				long onlyB = unknownB & ~unknownA;
+				int difference = remainingA - remaining(other);
+				if(difference == Long.bitCount(onlyA)) {
+					mark(index, onlyA, MINE);
+					mark(index, onlyB, SAFE);
+				}
+				else if(-difference == Long.bitCount(onlyB)) {
+					mark(index, onlyB, MINE);
+					mark(index, onlyA, SAFE);
+				}
+				else {
+					continue;
+				}
+				if(onlyA != 0) {
+					// The constraint itself changed and is back on the
+					// worklist, so there is nothing more to learn here.
+					return;
+				}
+			}
+		}
+    }
+
+    /**
+     * This method returns the unknown covered neighbors of the
+     * constraint at `index` as a mask over the 7-by-7 window centered
+     * on `center`. Bit (dr + 3) * 7 + (dc + 3) stands for the location
+     * dr rows and dc columns away from the center.
+     *
+     * @param center the flat index the window is centered on
+     * @param index the flat index of the constraint
+     * @return the mask of its unknown neighbors
+     */
+    private long unknownMask(int center, int index) {
+		int centerRow = center / width;
+		int centerCol = center % width;
+		int row = index / width;
+		int col = index % width;
+		long mask = 0;
+		for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+			for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+				int neighbor = r * width + c;
+				if(known[neighbor] == UNKNOWN && isUncovered(neighbor) == false) {
+					mask |= 1L << ((r - centerRow + 3) * WINDOW + (c - centerCol + 3));
+				}
+			}
+		}
+        return mask;
+    }
+
+    /**
+     * This method returns the hint of the constraint at `index` minus
+     * its neighbors that are known to be mines.
+     *
+     * @param index the flat index of the constraint
+     * @return the number of mines among its unknown neighbors
+     */
+    private int remaining(int index) {
+		int row = index / width;
+		int col = index % width;
+		int remaining = grid.cellAt(index) & Location.HINT_MASK;
+		for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+			for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+				if(known[r * width + c] == MINE) {
+					remaining--;
+				}
+			}
+		}
+        return remaining;
+    }
+
+    /**
+     * This method records every location in the window mask as safe or
+     * mined and puts the constraints around each on the worklist.
+     *
+     * @param center the flat index the window is centered on
+     * @param mask the locations, as a mask over the window
+     * @param value SAFE or MINE
+     */
+    private void mark(int center, long mask, byte value) {
+		int centerRow = center / width;
+		int centerCol = center % width;
+		while(mask != 0) {
+			int bit = Long.numberOfTrailingZeros(mask);
+			mask &= mask - 1;
+			int index = (centerRow + bit / WINDOW - 3) * width + (centerCol + bit % WINDOW - 3);
+			if(known[index] != UNKNOWN) {
+				continue;
+			}
+			known[index] = value;
+			if(value == SAFE) {
+				if(safeCount == safe.length) {
+					safe = Arrays.copyOf(safe, safeCount * 2);
+				}
+				safe[safeCount++] = index;
+			}
+			else {
+				if(mineCount == mines.length) {
+					mines = Arrays.copyOf(mines, mineCount * 2);
+				}
+				mines[mineCount++] = index;
+				knownMines++;
+			}
+			enqueueAround(index);
+		}
+    }
+
+    /**
+     * This method puts the uncovered locations around `index` (and
+     * `index` itself, if it is uncovered) on the worklist.
+     *
+     * @param index the flat index of a location that changed
+     */
+    private void enqueueAround(int index) {
+		int row = index / width;
+		int col = index % width;
+		for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, height - 1); r++) {
+			for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+				int neighbor = r * width + c;
+				if(isUncovered(neighbor)) {
+					enqueue(neighbor);
+				}
+			}
+		}
+    }
+
+    private void enqueue(int index) {
+		if((queued[index >> 6] & (1L << index)) != 0) {
+			return;
+		}
+		queued[index >> 6] |= 1L << index;
+		if(workCount == work.length) {
+			work = Arrays.copyOf(work, workCount * 2);
+		}
+		work[workCount++] = index;
+    }
+
+    private boolean isUncovered(int index) {
+        return (grid.cellAt(index) & Location.TYPE_MASK) == Location.UNCOVERED;
+    }
+}
@@ -0,0 +1,65 @@
+package edu.jsu.mcis;
+
+
+/**
+ * This class is a Simulator.Strategy that plays like a careful human.
+ * It uncovers every location the Solver proves safe, and when the
+ * Solver is stuck it guesses the covered location that the
+ * ProbabilityEngine gives the lowest chance of holding a mine. It
+ * never places flags, so every click is an uncover.
+ *
+ * The Solver and ProbabilityEngine are created for the first grid the
+ * strategy plays and are reused, after a reset, for every later game
+ * on the same grid.
+ */
+public class SolverStrategy implements Simulator.Strategy {
+    private Grid grid;
+    private Solver solver;
+    private ProbabilityEngine engine;
+
+    public int play(Grid grid) {
+		if(grid != this.grid) {
+			if(this.grid != null) {
+				this.grid.removeGridListener(solver);
+			}
+			this.grid = grid;
+			solver = new Solver(grid);
+			engine = new ProbabilityEngine(grid);
+		}
+		else {
+			solver.reset();
+		}
+		int width = grid.getWidth();
+		int clicks = 0;
+		while(grid.getResult() == Grid.Result.NONE) {
+			solver.solve();
+			int index = solver.nextSafe();
+			if(index < 0) {
+				index = guess();
+			}
+			grid.uncoverAt(index / width, index % width);
+			clicks++;
+		}
+        return clicks;
+    }
+
+    /**
+     * This method returns the flat index of the covered location least
+     * likely to hold a mine.
+     *
+     * @return the flat index of the best guess
+     */
+    private int guess() {
+		double[] probability = engine.compute();
+		int best = -1;
+		for(int i = 0; i < probability.length; i++) {
+			if(Location.typeOf(grid.cellAt(i)) != Location.Type.COVERED) {
+				continue;
+			}
+			if(best < 0 || probability[i] < probability[best]) {
+				best = i;
+			}
+		}
+        return best;
+    }
+}
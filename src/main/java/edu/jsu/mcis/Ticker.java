@@ -50,7 +50,7 @@ public class Ticker extends JLabel implements ActionListener {
      */
     public void reset() {
 		running = false;
-		timer.restart();
+		timer.stop();
 		seconds = 0;
 		setText("00:00");
     }
@@ -59,6 +59,21 @@ public class Ticker extends JLabel implements ActionListener {
         return running;
     }
     
+    public int getSeconds() {
+        return seconds;
+    }
+    
+    /**
+     * This method sets the elapsed time, for instance when a saved 
+     * game is resumed, without starting or stopping the timer.
+     * 
+     * @param seconds the elapsed time in seconds
+     */
+    public void setSeconds(int seconds) {
+		this.seconds = seconds;
+		setText(getTime());
+    }
+    
     /**
      * This method returns the elapsed time in MM:SS format.
      * 
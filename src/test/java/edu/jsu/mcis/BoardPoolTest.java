@@ -0,0 +1,120 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class BoardPoolTest {
+    private BoardPool pool;
+    
+    @Before
+    public void setUp() {
+        pool = new BoardPool(4, 2);
+    }
+    
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+    
+    /**
+     * This method plays the grid with the Solver alone, from the opening
+     * it was given, and returns the result.
+     */
+    private Grid.Result solveWithoutGuessing(Grid grid) {
+        Solver solver = new Solver(grid);
+        while(grid.getResult() == Grid.Result.NONE) {
+            solver.solve();
+            int index = solver.nextSafe();
+            if(index < 0) {
+                break;
+            }
+            grid.uncoverAt(index / grid.getWidth(), index % grid.getWidth());
+        }
+        return grid.getResult();
+    }
+    
+    /**
+     * This method waits for the pool to have a board of the size ready.
+     */
+    private void awaitReady(int width, int height, int mines) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while(pool.getReadyCount(width, height, mines) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+    
+    @Test
+    public void testPooledBoardsNeedNoGuessing() throws InterruptedException {
+        Grid grid = new Grid(16, 16, 40, new Random(3));
+        grid.setBoardPool(pool);
+        for(int game = 0; game < 10; game++) {
+            awaitReady(16, 16, 40);
+            grid.reset();
+            assertEquals(0, grid.getFlagCount());
+            int mines = 0;
+            int uncovered = 0;
+            for(int i = 0; i < 16 * 16; i++) {
+                mines += (grid.cellAt(i) & Location.MINE) != 0 ? 1 : 0;
+                uncovered += Location.typeOf(grid.cellAt(i)) == Location.Type.UNCOVERED ? 1 : 0;
+            }
+            assertEquals(40, mines);
+            assertTrue(uncovered > 0);
+            assertEquals(Grid.Result.WIN, solveWithoutGuessing(grid));
+        }
+        assertEquals(10, pool.getHits());
+        assertEquals(0, pool.getMisses());
+        assertEquals(0, pool.getFallbacks());
+        assertTrue(pool.getCandidatesTried() >= pool.getBoardsGenerated());
+        assertTrue(pool.getAverageGenerationMillis() > 0);
+    }
+    
+    @Test
+    public void testPreparedBoardsAreHits() throws InterruptedException {
+        pool.prepare(9, 9, 10);
+        long deadline = System.currentTimeMillis() + 10000;
+        while(pool.getReadyCount(9, 9, 10) < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(4, pool.getReadyCount(9, 9, 10));
+        Grid grid = new Grid(9, 9, 10);
+        grid.setBoardPool(pool);
+        grid.reset();
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.getMisses());
+        assertEquals(0, pool.getReadyCount(30, 16, 99));
+    }
+    
+    @Test
+    public void testMissesArePlacedAsUsual() {
+        pool.close();
+        Grid grid = new Grid(9, 9, 10);
+        grid.setBoardPool(pool);
+        grid.reset();
+        int mines = 0;
+        for(int i = 0; i < 9 * 9; i++) {
+            mines += (grid.cellAt(i) & Location.MINE) != 0 ? 1 : 0;
+            assertEquals(Location.Type.COVERED, Location.typeOf(grid.cellAt(i)));
+        }
+        assertEquals(10, mines);
+        assertEquals(Grid.Result.NONE, grid.getResult());
+        assertEquals(0, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        assertEquals(0, pool.getBoardsGenerated());
+    }
+    
+    @Test
+    public void testUnsupportedSizesAreNotPrepared() {
+        assertTrue(BoardPool.supports(30, 16, 99));
+        assertFalse(BoardPool.supports(3, 3, 9));
+        assertFalse(BoardPool.supports(1000, 1000, 1000));
+        Grid full = new Grid(3, 3, 9);
+        full.setBoardPool(pool);
+        full.reset();
+        assertEquals(Grid.Result.WIN, full.getResult());
+        assertEquals(0, pool.getReadyCount(3, 3, 9));
+        assertEquals(1, pool.getMisses());
+        assertEquals(0, pool.getBoardsGenerated());
+    }
+}
@@ -0,0 +1,95 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import javax.swing.*;
+
+public class BoardViewTest {
+    private Grid grid;
+    private BoardView board;
+    
+    @Before
+    public final void setUp() {
+        grid = new Grid(4, 3, 1);
+        board = new BoardView(grid);
+    }
+    
+    private JLabel getCell(int row, int col) {
+        for(Component component : board.getComponents()) {
+            if(("cell:" + row + ":" + col).equals(component.getName())) {
+                return (JLabel)component;
+            }
+        }
+        return null;
+    }
+    
+    @Test
+    public final void testPixelsMapToLocations() {
+        assertEquals(new Dimension(200, 150), board.getPreferredSize());
+        assertEquals(0, board.rowAt(0));
+        assertEquals(2, board.rowAt(149));
+        assertEquals(-1, board.rowAt(150));
+        assertEquals(3, board.colAt(199));
+        assertEquals(1, board.colAt(50));
+        assertEquals(-1, board.colAt(-1));
+    }
+    
+    @Test
+    public final void testNamedCellsFollowTheGrid() {
+        assertEquals(12, board.getComponentCount());
+        JLabel cell = getCell(2, 1);
+        assertEquals("covered", cell.getToolTipText());
+        assertEquals(BorderFactory.createRaisedBevelBorder(), cell.getBorder());
+        grid.placeFlagAt(2, 1);
+        assertEquals("flagged", cell.getToolTipText());
+        grid.removeFlagAt(2, 1);
+        if(grid.getLocation(2, 1).hasMine()) {
+            grid.uncoverAt(2, 1);
+            assertEquals("mine", cell.getToolTipText());
+        }
+        else {
+            grid.uncoverAt(2, 1);
+            assertEquals("uncovered", cell.getToolTipText());
+        }
+        assertEquals(BorderFactory.createEmptyBorder(), cell.getBorder());
+    }
+    
+    @Test
+    public final void testCoalescedViewWaitsForTheFrame() throws Exception {
+        final Grid empty = new Grid(4, 3, 0);
+        final BoardView coalesced = new BoardView(empty, true);
+        final int[] frames = new int[1];
+        coalesced.addFrameListener(() -> frames[0]++);
+        final JLabel cell = (JLabel)coalesced.getComponent(2 * 4 + 3);
+        SwingUtilities.invokeAndWait(() -> {
+            empty.placeFlagAt(2, 3);
+            empty.removeFlagAt(2, 3);
+            empty.uncoverAt(0, 0);
+            assertEquals(BorderFactory.createRaisedBevelBorder(), cell.getBorder());
+        });
+        SwingUtilities.invokeAndWait(() -> {});
+        assertEquals(BorderFactory.createEmptyBorder(), cell.getBorder());
+        assertEquals(1, frames[0]);
+    }
+    
+    @Test
+    public final void testLargeBoardsHaveNoNamedCells() {
+        BoardView large = new BoardView(new Grid(300, 300, 10000));
+        assertEquals(0, large.getComponentCount());
+        assertEquals(new Dimension(15000, 15000), large.getPreferredSize());
+    }
+    
+    @Test
+    public final void testBoardPaints() {
+        grid.uncoverAt(0, 0);
+        board.setSize(board.getPreferredSize());
+        BufferedImage image = new BufferedImage(200, 150, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        board.paint(g);
+        g.dispose();
+        assertNotEquals(0, image.getRGB(175, 125));
+    }
+}
@@ -0,0 +1,177 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class ChunkedGridTest {
+    private static final int SIZE = ChunkedGrid.CHUNK_SIZE;
+    private ChunkedGrid grid;
+    
+    @Before
+    public final void setUp() {
+        grid = new ChunkedGrid(1234L, 700);
+    }
+    
+    private int countNeighborMines(ChunkedGrid g, int row, int col) {
+        int count = 0;
+        for(int r = row - 1; r <= row + 1; r++) {
+            for(int c = col - 1; c <= col + 1; c++) {
+                if((r != row || c != col) && g.hasMine(r, c)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    @Test
+    public final void testChunksAreGeneratedLazily() {
+        assertEquals(0, grid.getChunkCount());
+        assertEquals(Location.Type.COVERED, grid.getType(5000000, -5000000));
+        assertEquals(0, grid.getChunkCount());
+        grid.placeFlagAt(5000000, -5000000);
+        assertEquals(1, grid.getChunkCount());
+        assertTrue(grid.isFlagAt(5000000, -5000000));
+    }
+    
+    @Test
+    public final void testBoardIsDeterministicFromSeed() {
+        ChunkedGrid other = new ChunkedGrid(1234L, 700);
+        // Visit the chunks in a different order on the second grid.
+        for(int row = 3 * SIZE - 1; row >= -SIZE; row -= 17) {
+            for(int col = -SIZE; col < 3 * SIZE; col += 13) {
+                other.getHint(row, col);
+            }
+        }
+        int mines = 0;
+        for(int row = 0; row < SIZE; row++) {
+            for(int col = 0; col < SIZE; col++) {
+                assertEquals(grid.hasMine(row, col), other.hasMine(row, col));
+                assertEquals(grid.getHint(row, col), other.getHint(row, col));
+                if(grid.hasMine(row, col)) mines++;
+            }
+        }
+        assertEquals(700, mines);
+        assertFalse(Arrays.equals(mineRow(grid, 0), mineRow(new ChunkedGrid(99L, 700), 0)));
+    }
+    
+    private boolean[] mineRow(ChunkedGrid g, int row) {
+        boolean[] mines = new boolean[SIZE];
+        for(int col = 0; col < SIZE; col++) {
+            mines[col] = g.hasMine(row, col);
+        }
+        return mines;
+    }
+    
+    @Test
+    public final void testHintsAreExactAcrossChunkBorders() {
+        for(int i = -SIZE - 2; i <= SIZE + 1; i++) {
+            for(int border : new int[] {-SIZE, -1, 0, SIZE - 1, SIZE}) {
+                assertEquals(countNeighborMines(grid, border, i), grid.getHint(border, i));
+                assertEquals(countNeighborMines(grid, i, border), grid.getHint(i, border));
+            }
+        }
+    }
+    
+    @Test
+    public final void testCascadeCrossesChunkBorders() {
+        final Set<Long> reported = new HashSet<Long>();
+        grid.addGridListener(new GridListener() {
+            public void onUncovered(int row, int col, int hint) {
+                assertTrue(reported.add(((long)row << 32) | (col & 0xFFFFFFFFL)));
+            }
+        });
+        // Find an open location right on a chunk border.
+        int row = SIZE - 1;
+        int col = 0;
+        while(grid.hasMine(row, col) || grid.getHint(row, col) != 0) {
+            col++;
+        }
+        grid.uncoverAt(row, col);
+        assertEquals(Grid.Result.NONE, grid.getResult());
+        boolean crossed = false;
+        for(long key : reported) {
+            int r = (int)(key >> 32);
+            int c = (int)key;
+            assertEquals(Location.Type.UNCOVERED, grid.getType(r, c));
+            assertFalse(grid.hasMine(r, c));
+            if(r >= SIZE) crossed = true;
+            if(grid.getHint(r, c) == 0) {
+                for(int nr = r - 1; nr <= r + 1; nr++) {
+                    for(int nc = c - 1; nc <= c + 1; nc++) {
+                        assertEquals(Location.Type.UNCOVERED, grid.getType(nr, nc));
+                    }
+                }
+            }
+        }
+        assertTrue(crossed);
+    }
+    
+    @Test
+    public final void testUncoveringMineLoses() {
+        int col = 0;
+        while(grid.hasMine(0, col) == false) {
+            col++;
+        }
+        grid.uncoverAt(0, col);
+        assertEquals(Grid.Result.LOSE, grid.getResult());
+    }
+    
+    @Test
+    public final void testCascadeIsReportedAsOneRegion() {
+        final int[] calls = new int[2];
+        grid.addGridListener(new GridListener() {
+            public void onRegion(Region region) {
+                calls[0]++;
+                calls[1] += region.size();
+                for(int i = 0; i < region.size(); i++) {
+                    assertEquals(Location.Type.UNCOVERED, region.getType(i));
+                    assertEquals(grid.getHint(region.getRow(i), region.getCol(i)), region.getHint(i));
+                }
+            }
+        });
+        int row = SIZE - 1;
+        int col = 0;
+        while(grid.hasMine(row, col) || grid.getHint(row, col) != 0) {
+            col++;
+        }
+        grid.uncoverAt(row, col);
+        assertEquals(1, calls[0]);
+        assertTrue(calls[1] > 1);
+    }
+    
+    @Test
+    public final void testCascadeStopsAtLimitAndCarriesOn() {
+        ChunkedGrid empty = new ChunkedGrid(1L, 0, 500);
+        final List<Long> opened = new ArrayList<Long>();
+        empty.addGridListener(new GridListener() {
+            public void onRegion(Region region) {
+                opened.clear();
+                for(int i = 0; i < region.size(); i++) {
+                    opened.add(((long)region.getRow(i) << 32) | (region.getCol(i) & 0xFFFFFFFFL));
+                }
+            }
+        });
+        empty.uncoverAt(0, 0);
+        assertEquals(500, opened.size());
+        long edge = -1;
+        for(long key : opened) {
+            int r = (int)(key >> 32);
+            int c = (int)key;
+            for(int nr = r - 1; nr <= r + 1; nr++) {
+                for(int nc = c - 1; nc <= c + 1; nc++) {
+                    if(empty.getType(nr, nc) == Location.Type.COVERED) {
+                        edge = key;
+                    }
+                }
+            }
+        }
+        assertTrue(edge != -1);
+        empty.uncoverAt((int)(edge >> 32), (int)edge);
+        assertEquals(500, opened.size());
+        assertFalse(opened.contains(edge));
+        assertEquals(Grid.Result.NONE, empty.getResult());
+    }
+}
@@ -0,0 +1,205 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class ConcurrentGridTest {
+    private static final int THREADS = 8;
+    
+    /**
+     * This class counts, for every location, how many times it was
+     * reported uncovered, and how many times the result changed.
+     */
+    private static class Counter implements GridListener, Grid.ResultListener {
+        private final AtomicIntegerArray uncovered;
+        private final AtomicInteger flags = new AtomicInteger();
+        private final List<Grid.Result> results = new CopyOnWriteArrayList<>();
+        private final int width;
+        
+        Counter(Grid grid) {
+            uncovered = new AtomicIntegerArray(grid.getWidth() * grid.getHeight());
+            width = grid.getWidth();
+            grid.addGridListener(this);
+            grid.addResultListener(this);
+        }
+        
+        public void onMine(int row, int col) {
+            uncovered.incrementAndGet(row * width + col);
+        }
+        
+        public void onRegion(Region region) {
+            for(int i = 0; i < region.size(); i++) {
+                uncovered.incrementAndGet(region.getIndex(i));
+            }
+        }
+        
+        public void onFlag(int row, int col) {
+            flags.incrementAndGet();
+        }
+        
+        public void onUnflag(int row, int col) {
+            flags.decrementAndGet();
+        }
+        
+        public void resultChanged(Grid grid, Grid.Result result) {
+            results.add(result);
+        }
+    }
+    
+    /**
+     * This method runs the task on THREADS threads that all start at
+     * the same moment.
+     */
+    private void race(Player task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(pool.submit(() -> {
+                barrier.await();
+                task.run(thread);
+                return null;
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+    }
+    
+    private interface Player {
+        void run(int thread) throws Exception;
+    }
+    
+    @Test
+    public void testOverlappingCascadesReportEachLocationOnce() throws Exception {
+        for(int round = 0; round < 20; round++) {
+            ConcurrentGrid grid = new ConcurrentGrid(200, 200, 2000, new Random(round));
+            Counter counter = new Counter(grid);
+            race(thread -> {
+                List<Integer> order = new ArrayList<>();
+                for(int i = 0; i < 200 * 200; i++) {
+                    order.add(i);
+                }
+                Collections.shuffle(order, new Random(thread));
+                for(int i : order) {
+                    if(grid.getLocation(i / 200, i % 200).hasMine() == false) {
+                        grid.uncoverAt(i / 200, i % 200);
+                    }
+                }
+            });
+            for(int i = 0; i < 200 * 200; i++) {
+                boolean mine = grid.getLocation(i / 200, i % 200).hasMine();
+                assertEquals("location " + i, mine ? 0 : 1, counter.uncovered.get(i));
+                assertEquals(mine ? Location.Type.COVERED : Location.Type.UNCOVERED, grid.getLocation(i / 200, i % 200).getType());
+            }
+            assertEquals(Grid.Result.WIN, grid.getResult());
+            assertEquals(Arrays.asList(Grid.Result.WIN), counter.results);
+        }
+    }
+    
+    @Test
+    public void testRacingChordsReportEachLocationOnce() throws Exception {
+        for(int round = 0; round < 20; round++) {
+            ConcurrentGrid grid = new ConcurrentGrid(60, 60, 1, new Random(round));
+            int mine = 0;
+            while(grid.getLocation(mine / 60, mine % 60).hasMine() == false) {
+                mine++;
+            }
+            // Near an edge, the ring of 1s around the mine can shut in a
+            // location that no chord reaches.
+            if(mine / 60 < 2 || mine / 60 > 57 || mine % 60 < 2 || mine % 60 > 57) {
+                continue;
+            }
+            int row = mine / 60 - 1;
+            int col = mine % 60;
+            grid.uncoverAt(row, col);
+            grid.placeFlagAt(mine / 60, mine % 60);
+            Counter counter = new Counter(grid);
+            race(thread -> grid.chordAt(row, col));
+            for(int i = 0; i < 60 * 60; i++) {
+                assertEquals("location " + i, i == mine || i == row * 60 + col ? 0 : 1, counter.uncovered.get(i));
+            }
+            assertEquals(Grid.Result.WIN, grid.getResult());
+            assertEquals(Arrays.asList(Grid.Result.WIN), counter.results);
+        }
+    }
+    
+    @Test
+    public void testResultIsDecidedExactlyOnce() throws Exception {
+        for(int r = 0; r < 50; r++) {
+            final int round = r;
+            ConcurrentGrid grid = new ConcurrentGrid(30, 16, 99, new Random(round));
+            Counter counter = new Counter(grid);
+            race(thread -> {
+                Random random = new Random(round * THREADS + thread);
+                while(grid.getResult() == Grid.Result.NONE) {
+                    grid.uncoverAt(random.nextInt(16), random.nextInt(30));
+                }
+            });
+            assertEquals(1, counter.results.size());
+            assertEquals(counter.results.get(0), grid.getResult());
+            int uncoveredMines = 0;
+            for(int i = 0; i < 30 * 16; i++) {
+                assertTrue(counter.uncovered.get(i) <= 1);
+                if(counter.uncovered.get(i) == 1 && grid.getLocation(i / 30, i % 30).hasMine()) {
+                    uncoveredMines++;
+                }
+            }
+            if(grid.getResult() == Grid.Result.LOSE) {
+                assertTrue(uncoveredMines >= 1);
+            }
+            else {
+                assertEquals(0, uncoveredMines);
+            }
+        }
+    }
+    
+    @Test
+    public void testFlagsAreToggledAtomically() throws Exception {
+        ConcurrentGrid grid = new ConcurrentGrid(16, 16, 40, new Random(1));
+        Counter counter = new Counter(grid);
+        race(thread -> {
+            Random random = new Random(thread);
+            for(int i = 0; i < 100000; i++) {
+                int row = random.nextInt(16);
+                int col = random.nextInt(16);
+                if(random.nextBoolean()) {
+                    grid.placeFlagAt(row, col);
+                }
+                else {
+                    grid.removeFlagAt(row, col);
+                }
+            }
+        });
+        int flagged = 0;
+        for(int i = 0; i < 16 * 16; i++) {
+            if(grid.isFlagAt(i / 16, i % 16)) {
+                flagged++;
+            }
+        }
+        assertEquals(flagged, grid.getFlagCount());
+        assertEquals(flagged, counter.flags.get());
+    }
+    
+    @Test
+    public void testResetStartsOver() {
+        ConcurrentGrid grid = new ConcurrentGrid(8, 8, 10, new Random(3));
+        Counter counter = new Counter(grid);
+        for(int i = 0; i < 64; i++) {
+            if(grid.getLocation(i / 8, i % 8).hasMine()) {
+                grid.uncoverAt(i / 8, i % 8);
+                break;
+            }
+        }
+        assertEquals(Grid.Result.LOSE, grid.getResult());
+        grid.reset();
+        assertEquals(Grid.Result.NONE, grid.getResult());
+        assertEquals(Arrays.asList(Grid.Result.LOSE, Grid.Result.NONE), counter.results);
+    }
+}
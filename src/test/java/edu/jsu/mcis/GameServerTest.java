@@ -0,0 +1,141 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.*;
+
+public class GameServerTest {
+    private GameServer server;
+    
+    @Before
+    public void setUp() throws IOException {
+        server = new GameServer(0);
+        server.start();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+    
+    /**
+     * This method sends a command and returns the lines of the answer,
+     * up to and including the closing OK or ERR line.
+     */
+    private List<String> send(BufferedReader in, Writer out, String command) throws IOException {
+        out.write(command + "\n");
+        out.flush();
+        List<String> lines = new ArrayList<>();
+        String line;
+        do {
+            line = in.readLine();
+            lines.add(line);
+        } while(line != null && line.equals("OK") == false && line.startsWith("ERR") == false);
+        return lines;
+    }
+    
+    @Test
+    public void testEventsStreamBackToTheClient() throws IOException {
+        Grid local = new Grid(8, 8, 10, new Random(21));
+        int safe = 0;
+        while(local.getLocation(safe / 8, safe % 8).hasMine()) {
+            safe++;
+        }
+        int mine = 0;
+        while(local.getLocation(mine / 8, mine % 8).hasMine() == false) {
+            mine++;
+        }
+        List<String> messages = new ArrayList<>();
+        local.addObserver((o, arg) -> messages.add((String)arg));
+        
+        try(Socket socket = new Socket("localhost", server.getPort())) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            Writer out = new OutputStreamWriter(socket.getOutputStream());
+            assertEquals(Arrays.asList("ERR no game"), send(in, out, "U 0 0"));
+            assertEquals(Arrays.asList("OK"), send(in, out, "NEW 8 8 10 21"));
+            
+            local.placeFlagAt(2, 3);
+            assertEquals(Arrays.asList(messages.get(0), "OK"), send(in, out, "F 2 3"));
+            local.removeFlagAt(2, 3);
+            assertEquals(Arrays.asList("2:3:unflag", "OK"), send(in, out, "R 2 3"));
+            local.uncoverAt(safe / 8, safe % 8);
+            assertEquals(Arrays.asList(messages.get(2), "OK"), send(in, out, "U " + safe / 8 + " " + safe % 8));
+            assertEquals(Arrays.asList("OK"), send(in, out, "U " + safe / 8 + " " + safe % 8));
+            assertEquals(Arrays.asList(mine / 8 + ":" + mine % 8 + ":mine", "LOSE", "OK"), send(in, out, "U " + mine / 8 + " " + mine % 8));
+            
+            assertEquals(Arrays.asList("ERR unknown command"), send(in, out, "X 1 2"));
+            assertEquals(Arrays.asList("ERR bad arguments"), send(in, out, "U one two"));
+            assertEquals(Arrays.asList("ERR board too large"), send(in, out, "NEW 100000 100000 10"));
+        }
+    }
+    
+    @Test
+    public void testBatchIsOneLine() throws IOException {
+        Grid local = new Grid(8, 8, 10, new Random(21));
+        int mine = 0;
+        while(local.getLocation(mine / 8, mine % 8).hasMine() == false) {
+            mine++;
+        }
+        try(Socket socket = new Socket("localhost", server.getPort())) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            Writer out = new OutputStreamWriter(socket.getOutputStream());
+            assertEquals(Arrays.asList("OK"), send(in, out, "NEW 8 8 10 21"));
+            assertEquals(Arrays.asList("2:3:flag 4:4:flag", "OK"), send(in, out, "B F 2 3 F 4 4 F 1 1 R 1 1"));
+            assertEquals(Arrays.asList("ERR unknown move X"), send(in, out, "B X 0 0"));
+            List<String> lines = send(in, out, "B R 2 3 U " + mine / 8 + " " + mine % 8);
+            assertEquals(Arrays.asList("2:3:unflag " + mine / 8 + ":" + mine % 8 + ":mine", "LOSE", "OK"), lines);
+        }
+    }
+    
+    @Test
+    public void testLongLinesCloseTheSession() throws IOException {
+        try(Socket socket = new Socket("localhost", server.getPort())) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            Writer out = new OutputStreamWriter(socket.getOutputStream());
+            assertEquals(Arrays.asList("OK"), send(in, out, "NEW 8 8 10 21"));
+            char[] junk = new char[GameServer.MAX_LINE * 4];
+            Arrays.fill(junk, 'x');
+            out.write(junk);
+            out.flush();
+            assertEquals("ERR line too long", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+    
+    @Test
+    public void testLoadClientPlaysEveryGame() throws InterruptedException {
+        LoadClient client = new LoadClient("localhost", server.getPort());
+        Simulator.Summary summary = client.run(20, 10, 9, 9, 10);
+        assertEquals(200, summary.getGames());
+        assertEquals(200, summary.getWins() + summary.getLosses());
+        assertTrue(summary.getClicks() >= 200);
+    }
+    
+    @Test
+    public void testManyIdleSessions() throws Exception {
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for(int i = 0; i < 1000; i++) {
+                sockets.add(new Socket("localhost", server.getPort()));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while(server.getSessionCount() < 1000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1000, server.getSessionCount());
+        }
+        finally {
+            for(Socket socket : sockets) {
+                socket.close();
+            }
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while(server.getSessionCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.getSessionCount());
+    }
+}
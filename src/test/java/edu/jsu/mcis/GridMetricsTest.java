@@ -0,0 +1,110 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import javax.management.Attribute;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class GridMetricsTest {
+    private GridMetrics metrics;
+    
+    @Before
+    public void setUp() {
+        metrics = GridMetrics.get();
+        metrics.reset();
+    }
+    
+    @After
+    public void tearDown() {
+        metrics.setEnabled(false);
+        metrics.reset();
+    }
+    
+    @Test
+    public void testNothingIsRecordedWhileDisabled() {
+        metrics.setEnabled(false);
+        Grid grid = new Grid(10, 10, 0);
+        grid.placeFlagAt(0, 0);
+        grid.uncoverAt(5, 5);
+        grid.getResult();
+        assertNull(GridMetrics.active());
+        assertEquals(0, metrics.getUncovers());
+        assertEquals(0, metrics.getFlagsPlaced());
+        assertEquals(0, metrics.getResultLatency().getCount());
+    }
+    
+    @Test
+    public void testUncoversAndFlagsAreCounted() {
+        metrics.setEnabled(true);
+        Grid grid = new Grid(10, 10, 0);
+        grid.placeFlagAt(3, 4);
+        grid.removeFlagAt(3, 4);
+        grid.uncoverAt(5, 5);
+        grid.getResult();
+        assertEquals(1, metrics.getFlagsPlaced());
+        assertEquals(1, metrics.getFlagsRemoved());
+        assertEquals(1, metrics.getUncovers());
+        assertEquals(0, metrics.getMinesHit());
+        assertEquals(100, metrics.getCascadeCells());
+        assertEquals(100.0, metrics.getMeanCascadeSize(), 0);
+        assertEquals(127, metrics.getCascadeSizeP99());
+        assertEquals(1, metrics.getUncoverLatency().getCount());
+        assertEquals(3, metrics.getDispatchLatency().getCount());
+        assertEquals(1, metrics.getResultLatency().getCount());
+    }
+    
+    @Test
+    public void testHistogramPercentiles() {
+        GridMetrics.Histogram histogram = new GridMetrics.Histogram();
+        assertEquals(0, histogram.getPercentile(0.5));
+        for(int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+        assertEquals(63, histogram.getPercentile(0.5));
+        assertEquals(127, histogram.getPercentile(0.99));
+        assertEquals(1, histogram.getPercentile(0.01));
+    }
+    
+    @Test
+    public void testMetricsArePublishedOverJmx() throws Exception {
+        GridMetrics.register();
+        GridMetrics.register();
+        ObjectName name = new ObjectName(GridMetrics.OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().setAttribute(name, new Attribute("Enabled", true));
+        assertTrue(metrics.isEnabled());
+        new Grid(4, 4, 0).uncoverAt(0, 0);
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Uncovers"));
+    }
+    
+    @Test
+    public void testUncoversAreFlightRecorderEvents() throws Exception {
+        metrics.setEnabled(true);
+        Path path = Files.createTempFile("minesweeper", ".jfr");
+        try(Recording recording = new Recording()) {
+            recording.enable("edu.jsu.mcis.Uncover");
+            recording.start();
+            new Grid(6, 5, 0).uncoverAt(2, 3);
+            recording.stop();
+            recording.dump(path);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(path);
+            assertEquals(1, events.size());
+            assertEquals(30, events.get(0).getInt("cells"));
+            assertEquals(3, events.get(0).getInt("col"));
+            assertTrue(events.get(0).getDuration().toNanos() > 0);
+            assertTrue(events.get(0).getDuration().toNanos() >= events.get(0).getLong("dispatchNanos"));
+        }
+        finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class GridSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * This method uncovers and flags some of the locations of the grid
+     * without touching a mine.
+     */
+    private void playSome(Grid grid, long seed) {
+        Random player = new Random(seed);
+        for(int i = 0; i < 40; i++) {
+            int row = player.nextInt(grid.getHeight());
+            int col = player.nextInt(grid.getWidth());
+            if(grid.getLocation(row, col).hasMine()) {
+                grid.placeFlagAt(row, col);
+            }
+            else if(i % 7 == 0) {
+                grid.placeFlagAt(row, col);
+            }
+            else {
+                grid.uncoverAt(row, col);
+            }
+        }
+    }
+    
+    private void assertSameCells(Grid expected, Grid actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getMines(), actual.getMines());
+        for(int i = 0; i < expected.getWidth() * expected.getHeight(); i++) {
+            assertEquals("location " + i, expected.cellAt(i), actual.cellAt(i));
+        }
+        assertEquals(expected.getResult(), actual.getResult());
+        assertEquals(expected.getFlagCount(), actual.getFlagCount());
+    }
+    
+    @Test
+    public void testGameResumesWhereItWasSaved() throws IOException {
+        Path path = folder.newFile().toPath();
+        for(long seed = 0; seed < 20; seed++) {
+            Grid grid = new Grid(30, 16, 99, new Random(seed));
+            playSome(grid, seed);
+            GridSnapshot.save(grid, 95, path);
+            GridSnapshot snapshot = GridSnapshot.load(path);
+            assertSameCells(grid, snapshot.getGrid());
+            assertEquals(95, snapshot.getSeconds());
+        }
+    }
+    
+    @Test
+    public void testHintsAreRecomputedWhenNotStored() throws IOException {
+        Path path = folder.newFile().toPath();
+        Grid grid = new Grid(31, 17, 80, new Random(3));
+        playSome(grid, 3);
+        GridSnapshot.save(grid, 0, path, false);
+        assertEquals(GridSnapshot.HEADER_SIZE + 3 * 8 * ((31 * 17 + 63) / 64), Files.size(path));
+        assertSameCells(grid, GridSnapshot.load(path).getGrid());
+    }
+    
+    @Test
+    public void testRestoredGridKeepsPlaying() throws IOException {
+        Path path = folder.newFile().toPath();
+        Grid grid = new Grid(8, 8, 10, new Random(5));
+        GridSnapshot.save(grid, 0, path);
+        Grid restored = GridSnapshot.load(path).getGrid();
+        for(int row = 0; row < 8; row++) {
+            for(int col = 0; col < 8; col++) {
+                if(restored.getLocation(row, col).hasMine() == false) {
+                    restored.uncoverAt(row, col);
+                }
+            }
+        }
+        assertEquals(Grid.Result.WIN, restored.getResult());
+    }
+    
+    @Test
+    public void testLargeBoardRoundTrips() throws IOException {
+        Path path = folder.newFile().toPath();
+        Grid grid = new Grid(2000, 1500, 500000, new Random(9));
+        playSome(grid, 9);
+        GridSnapshot.save(grid, 3600, path);
+        assertSameCells(grid, GridSnapshot.load(path).getGrid());
+    }
+    
+    @Test
+    public void testUnplacedGridStaysDeferred() throws IOException {
+        Path path = folder.newFile().toPath();
+        Grid grid = new Grid(9, 9, 10, new Random(4), Grid.Placement.SAFE_AREA);
+        grid.placeFlagAt(2, 3);
+        GridSnapshot.save(grid, 5, path);
+        Grid restored = GridSnapshot.load(path).getGrid();
+        assertFalse(restored.areMinesPlaced());
+        assertTrue(restored.isFlagAt(2, 3));
+        restored.uncoverAt(4, 4);
+        assertTrue(restored.areMinesPlaced());
+        assertEquals(Grid.Result.NONE, restored.getResult());
+        assertEquals(0, restored.getLocation(4, 4).getHint());
+    }
+    
+    @Test
+    public void testWrongMineCountsAreRejected() throws IOException {
+        Path path = folder.newFile().toPath();
+        GridSnapshot.save(new Grid(9, 9, 10, new Random(6)), 5, path);
+        byte[] saved = Files.readAllBytes(path);
+        for(int mines : new int[] {-1, 9, 11, 82}) {
+            byte[] edited = saved.clone();
+            java.nio.ByteBuffer.wrap(edited).putInt(12, mines);
+            Files.write(path, edited);
+            try {
+                GridSnapshot.load(path);
+                fail(mines + " mines in the header should be rejected");
+            }
+            catch(IOException e) {
+                assertTrue(e.getMessage().contains("mines"));
+            }
+        }
+    }
+    
+    @Test(expected = IOException.class)
+    public void testOtherFilesAreRejected() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, new byte[64]);
+        GridSnapshot.load(path);
+    }
+}
@@ -64,16 +64,9 @@ public class GridTest {
         //  8  01222*1011
         //  9  01*111101*
          
-        int[] randomValues = {5, 7, 
-                              4, 2, 
-                              7, 3, 
-                              1, 6, 
-                              8, 5,
-                              9, 2,
-                              6, 1,
-                              2, 4,
-                              0, 5,
-                              9, 9}; 
+        // Mines are drawn as flat indices (row * 10 + col) by Floyd's
+        // algorithm, whose draws come from [0, 91), [0, 92), ... [0, 100).
+        int[] randomValues = {57, 42, 73, 16, 85, 92, 61, 24, 5, 99}; 
         gridMocked = new Grid(10, 10, 10, new MockRandom(randomValues));
         observer = new MockObserver();
         gridMocked.addObserver(observer);
@@ -209,6 +202,18 @@ public class GridTest {
         assertEquals("", observer.getMessage());        
     }
     
+    @Test
+    public final void testLocationIsViewOfGrid() {
+        Location loc = gridMocked.getLocation(3, 3);
+        loc.setType(Location.Type.FLAGGED);
+        assertTrue(gridMocked.isFlagAt(3, 3));
+        assertEquals(Location.Type.FLAGGED, gridMocked.getLocation(3, 3).getType());
+        assertEquals(2, gridMocked.getLocation(3, 3).getHint());
+        assertTrue(gridMocked.getLocation(4, 2).hasMine());
+        gridMocked.removeFlagAt(3, 3);
+        assertEquals(Location.Type.COVERED, loc.getType());
+    }
+    
     private List<Point> messageToPoints(String message) {
         List<Point> list = new ArrayList<Point>();
         String[] msg = message.split(" ");
@@ -256,17 +261,347 @@ public class GridTest {
         assertEquals(Location.Type.UNCOVERED, gridMocked.getLocation(5, 7).getType());
         assertEquals("5:7:mine", observer.getMessage());
     }
+    
+    @Test
+    public final void testLargeCascadeIsIterativeAndSingleMessage() {
+        Grid open = new Grid(1000, 1000, 0);
+        final int[] messages = new int[1];
+        open.addObserver(new Observer() {
+            public void update(Observable o, Object arg) { messages[0]++; }
+        });
+        open.uncoverAt(500, 500);
+        assertEquals(1, messages[0]);
+        assertEquals(Location.Type.UNCOVERED, open.getLocation(0, 0).getType());
+        assertEquals(Location.Type.UNCOVERED, open.getLocation(999, 999).getType());
+        assertEquals(Grid.Result.WIN, open.getResult());
+    }
+    
+    @Test
+    public final void testResultIsTrackedIncrementally() {
+        final List<Grid.Result> results = new ArrayList<Grid.Result>();
+        gridMocked.addResultListener(new Grid.ResultListener() {
+            public void resultChanged(Grid g, Grid.Result result) { results.add(result); }
+        });
+        assertEquals(Grid.Result.NONE, gridMocked.getResult());
+        gridMocked.placeFlagAt(0, 5);
+        assertEquals(1, gridMocked.getFlagCount());
+        gridMocked.uncoverAt(1, 1);
+        assertEquals(Grid.Result.NONE, gridMocked.getResult());
+        assertTrue(results.isEmpty());
+        
+        gridMocked.getLocation(5, 7).setType(Location.Type.UNCOVERED);
+        assertEquals(Grid.Result.LOSE, gridMocked.getResult());
+        gridMocked.getLocation(5, 7).setType(Location.Type.COVERED);
+        assertEquals(Grid.Result.NONE, gridMocked.getResult());
+        assertEquals(Arrays.asList(Grid.Result.LOSE, Grid.Result.NONE), results);
+        
+        for(int row = 0; row < gridMocked.getHeight(); row++) {
+            for(int col = 0; col < gridMocked.getWidth(); col++) {
+                if(gridMocked.getLocation(row, col).hasMine() == false) {
+                    gridMocked.uncoverAt(row, col);
+                }
+            }
+        }
+        assertEquals(Grid.Result.WIN, gridMocked.getResult());
+        assertEquals(Grid.Result.WIN, results.get(results.size() - 1));
+        
+        gridMocked.reset();
+        assertEquals(Grid.Result.NONE, gridMocked.getResult());
+        assertEquals(0, gridMocked.getFlagCount());
+    }
+    
+    @Test
+    public final void testMinePlacementNeverRetries() {
+        // Every draw collides after the first one, so each later pick
+        // falls back to the top of its range: 0, 91, 92, ..., 99.
+        Grid colliding = new Grid(10, 10, 10, new MockRandom(new int[] {0}));
+        assertTrue(colliding.getLocation(0, 0).hasMine());
+        for(int col = 1; col < 10; col++) {
+            assertTrue(colliding.getLocation(9, col).hasMine());
+        }
+        assertFalse(colliding.getLocation(9, 0).hasMine());
+        
+        Grid dense = new Grid(10, 10, 99, new MockRandom(new int[] {0}));
+        Grid full = new Grid(10, 10, 100);
+        int denseCount = 0;
+        int fullCount = 0;
+        for(int row = 0; row < 10; row++) {
+            for(int col = 0; col < 10; col++) {
+                if(dense.getLocation(row, col).hasMine()) denseCount++;
+                if(full.getLocation(row, col).hasMine()) fullCount++;
+            }
+        }
+        assertEquals(99, denseCount);
+        assertFalse(dense.getLocation(0, 0).hasMine());
+        assertEquals(100, fullCount);
+    }
+    
+    @Test
+    public final void testHintsOnLargeGridMatchNeighborCounts() {
+        Grid large = new Grid(1100, 1000, 200000, new Random(42));
+        for(int row = 0; row < large.getHeight(); row += 9) {
+            for(int col = 0; col < large.getWidth(); col++) {
+                int expected = 0;
+                for(int r = row - 1; r <= row + 1; r++) {
+                    for(int c = col - 1; c <= col + 1; c++) {
+                        if(r >= 0 && c >= 0 && r < large.getHeight() && c < large.getWidth() &&
+                           (r != row || c != col) && large.getLocation(r, c).hasMine()) {
+                            expected++;
+                        }
+                    }
+                }
+                assertEquals(expected, large.getLocation(row, col).getHint());
+            }
+        }
+    }
+    
+    @Test
+    public final void testTypedListenerReceivesEvents() {
+        final StringBuilder events = new StringBuilder();
+        final int[] regions = new int[1];
+        gridMocked.addGridListener(new GridListener() {
+            public void onUncovered(int row, int col, int hint) { events.append(row + "," + col + "=" + hint + " "); }
+            public void onMine(int row, int col) { events.append("mine " + row + "," + col + " "); }
+            public void onFlag(int row, int col) { events.append("flag " + row + "," + col + " "); }
+            public void onUnflag(int row, int col) { events.append("unflag " + row + "," + col + " "); }
+            public void onRegion(Region region) {
+                regions[0]++;
+                GridListener.super.onRegion(region);
+            }
+        });
+        gridMocked.placeFlagAt(6, 2);
+        gridMocked.removeFlagAt(6, 2);
+        gridMocked.uncoverAt(0, 4);
+        gridMocked.uncoverAt(4, 2);
+        assertEquals("flag 6,2 unflag 6,2 0,4=1 mine 4,2 ", events.toString());
+        assertEquals(1, regions[0]);
+        
+        observer.clearMessage();
+        gridMocked.deleteObserver(observer);
+        gridMocked.placeFlagAt(6, 2);
+        assertEquals("", observer.getMessage());
+    }
+    
+    @Test
+    public final void testUndoAndRedoReplayDeltas() {
+        final List<Grid.Result> results = new ArrayList<Grid.Result>();
+        gridMocked.addResultListener(new Grid.ResultListener() {
+            public void resultChanged(Grid g, Grid.Result result) { results.add(result); }
+        });
+        assertFalse(gridMocked.canUndo());
+        gridMocked.uncoverAt(1, 1);
+        assertFalse(gridMocked.undo());
+        
+        gridMocked.setUndoEnabled(true);
+        gridMocked.placeFlagAt(6, 2);
+        gridMocked.uncoverAt(4, 3);
+        gridMocked.uncoverAt(5, 7);
+        assertEquals(Grid.Result.LOSE, gridMocked.getResult());
+        
+        observer.clearMessage();
+        assertTrue(gridMocked.undo());
+        assertEquals("5:7:cover", observer.getMessage());
+        assertEquals(Location.Type.COVERED, gridMocked.getLocation(5, 7).getType());
+        assertEquals(Grid.Result.NONE, gridMocked.getResult());
+        assertTrue(gridMocked.undo());
+        assertEquals(Location.Type.COVERED, gridMocked.getLocation(4, 3).getType());
+        observer.clearMessage();
+        assertTrue(gridMocked.undo());
+        assertEquals("6:2:unflag", observer.getMessage());
+        assertEquals(0, gridMocked.getFlagCount());
+        assertFalse(gridMocked.canUndo());
+        // The cascade from before undo was enabled is not undone.
+        assertEquals(Location.Type.UNCOVERED, gridMocked.getLocation(1, 1).getType());
+        
+        observer.clearMessage();
+        assertTrue(gridMocked.redo());
+        assertEquals("6:2:flag", observer.getMessage());
+        assertTrue(gridMocked.redo());
+        assertEquals(Location.Type.UNCOVERED, gridMocked.getLocation(4, 3).getType());
+        assertTrue(gridMocked.canRedo());
+        
+        // A new action drops the actions that could have been redone.
+        gridMocked.removeFlagAt(6, 2);
+        assertFalse(gridMocked.canRedo());
+        assertFalse(gridMocked.redo());
+        assertTrue(gridMocked.undo());
+        assertTrue(gridMocked.isFlagAt(6, 2));
+        assertEquals(Arrays.asList(Grid.Result.LOSE, Grid.Result.NONE), results);
+        
+        gridMocked.reset();
+        assertFalse(gridMocked.canUndo());
+    }
+    
+    @Test
+    public final void testUndoOfCascadeIsOneCoveringRegion() {
+        Grid open = new Grid(300, 300, 1, new MockRandom(new int[] {0}));
+        open.setUndoEnabled(true);
+        final int[] covered = new int[2];
+        open.addGridListener(new GridListener() {
+            public void onRegion(Region region) {
+                if(region.isCovering()) {
+                    covered[0]++;
+                    covered[1] += region.size();
+                }
+            }
+        });
+        open.uncoverAt(299, 299);
+        assertEquals(Grid.Result.WIN, open.getResult());
+        assertTrue(open.undo());
+        assertEquals(1, covered[0]);
+        assertEquals(300 * 300 - 1, covered[1]);
+        assertEquals(Grid.Result.NONE, open.getResult());
+        assertEquals(Location.Type.COVERED, open.getLocation(150, 150).getType());
+        assertTrue(open.redo());
+        assertEquals(Grid.Result.WIN, open.getResult());
+    }
+    
+    @Test
+    public final void testChordOpensNeighborsAsOneRegion() {
+        Grid small = new Grid(4, 4, 1, new MockRandom(new int[] {0}));
+        small.setUndoEnabled(true);
+        final int[] regions = new int[2];
+        small.addGridListener(new GridListener() {
+            public void onRegion(Region region) {
+                regions[0]++;
+                regions[1] = region.size();
+            }
+        });
+        assertTrue(small.getLocation(0, 0).hasMine());
+        small.uncoverAt(1, 1);
+        assertEquals(1, regions[1]);
+        small.chordAt(1, 1);
+        assertEquals(1, regions[0]);
+        small.placeFlagAt(0, 0);
+        small.chordAt(1, 1);
+        assertEquals(2, regions[0]);
+        assertEquals(14, regions[1]);
+        assertEquals(Grid.Result.WIN, small.getResult());
+        assertTrue(small.undo());
+        assertEquals(Location.Type.COVERED, small.getLocation(3, 3).getType());
+        assertEquals(Location.Type.UNCOVERED, small.getLocation(1, 1).getType());
+        assertEquals(Grid.Result.NONE, small.getResult());
+    }
+    
+    @Test
+    public final void testChordWithMisplacedFlagLoses() {
+        Grid small = new Grid(4, 4, 1, new MockRandom(new int[] {0}));
+        small.uncoverAt(1, 1);
+        small.placeFlagAt(0, 1);
+        small.chordAt(1, 1);
+        assertEquals(Location.Type.UNCOVERED, small.getLocation(0, 0).getType());
+        assertEquals(Grid.Result.LOSE, small.getResult());
+        assertEquals(Location.Type.UNCOVERED, small.getLocation(3, 3).getType());
+        assertTrue(small.isFlagAt(0, 1));
+        small.chordAt(-1, 0);
+    }
+    
+    @Test
+    public final void testBatchMatchesSingleMoves() {
+        for(long seed = 0; seed < 50; seed++) {
+            Grid single = new Grid(16, 16, 40, new Random(seed));
+            Grid batched = new Grid(16, 16, 40, new Random(seed));
+            final int[] regions = new int[1];
+            final List<Grid.Result> results = new ArrayList<>();
+            batched.addGridListener(new GridListener() {
+                public void onRegion(Region region) {
+                    regions[0]++;
+                }
+            });
+            batched.addResultListener((g, result) -> results.add(result));
+            Random player = new Random(seed);
+            MoveBatch batch = new MoveBatch();
+            for(int m = 0; m < 60; m++) {
+                int op = new int[] {MoveJournal.UNCOVER, MoveJournal.FLAG, MoveJournal.UNFLAG, MoveJournal.CHORD}[player.nextInt(4)];
+                batch.add(op, player.nextInt(17) - 1, player.nextInt(16));
+                MoveJournal.apply(single, op, batch.getRow(m), batch.getCol(m));
+            }
+            assertEquals(single.getResult(), batched.apply(batch));
+            assertEquals(1, regions[0]);
+            assertEquals(single.getResult() == Grid.Result.NONE ? 0 : 1, results.size());
+            assertArrayEquals(single.cellArray(), batched.cellArray());
+            assertEquals(single.getFlagCount(), batched.getFlagCount());
+        }
+    }
+    
+    @Test
+    public final void testBatchReportsOnlyNetChanges() {
+        final List<String> changes = new ArrayList<>();
+        gridMocked.addGridListener(new GridListener() {
+            public void onFlag(int row, int col) {
+                changes.add(row + ":" + col + ":flag");
+            }
+            public void onUnflag(int row, int col) {
+                changes.add(row + ":" + col + ":unflag");
+            }
+        });
+        gridMocked.placeFlagAt(0, 0);
+        changes.clear();
+        gridMocked.setUndoEnabled(true);
+        MoveBatch batch = new MoveBatch().flag(1, 1).unflag(1, 1).unflag(0, 0).flag(2, 2).flag(2, 2).flag(10, 10);
+        assertEquals(Grid.Result.NONE, gridMocked.apply(batch));
+        assertEquals(Arrays.asList("0:0:unflag", "2:2:flag"), changes);
+        assertTrue(gridMocked.undo());
+        assertFalse(gridMocked.isFlagAt(2, 2));
+        assertTrue(gridMocked.undo());
+        assertTrue(gridMocked.isFlagAt(0, 0));
+        assertEquals(Grid.Result.NONE, gridMocked.apply(new MoveBatch()));
+    }
+    
+    @Test
+    public final void testDeferredPlacementSparesFirstUncover() {
+        for(long seed = 0; seed < 200; seed++) {
+            Grid area = new Grid(9, 9, 10, new Random(seed), Grid.Placement.SAFE_AREA);
+            assertFalse(area.areMinesPlaced());
+            int row = (int)(seed % 9);
+            int col = (int)(seed / 9 % 9);
+            area.uncoverAt(row, col);
+            assertTrue(area.areMinesPlaced());
+            assertEquals(Grid.Result.NONE, area.getResult());
+            assertEquals(0, area.getLocation(row, col).getHint());
+            int placed = 0;
+            for(int r = 0; r < 9; r++) {
+                for(int c = 0; c < 9; c++) {
+                    if(area.getLocation(r, c).hasMine()) {
+                        placed++;
+                        assertTrue(Math.abs(r - row) > 1 || Math.abs(c - col) > 1);
+                    }
+                }
+            }
+            assertEquals(10, placed);
+        }
+        
+        // Too many mines to spare the area: only the location itself.
+        Grid crowded = new Grid(3, 3, 8, new Random(1), Grid.Placement.SAFE_AREA);
+        crowded.uncoverAt(1, 1);
+        assertFalse(crowded.getLocation(1, 1).hasMine());
+        assertEquals(8, crowded.getLocation(1, 1).getHint());
+        assertEquals(Grid.Result.WIN, crowded.getResult());
+        
+        Grid cell = new Grid(2, 1, 1, new Random(5), Grid.Placement.SAFE_CELL);
+        cell.uncoverAt(0, 1);
+        assertTrue(cell.getLocation(0, 0).hasMine());
+        assertEquals(Grid.Result.WIN, cell.getResult());
+    }
+    
+    @Test
+    public final void testDeferredPlacementIsRepeatableAndResetIsEmpty() {
+        Grid first = new Grid(30, 16, 99, new Random(9), Grid.Placement.SAFE_AREA);
+        Grid second = new Grid(30, 16, 99, new Random(9), Grid.Placement.SAFE_AREA);
+        first.placeFlagAt(0, 0);
+        first.uncoverAt(8, 15);
+        second.uncoverAt(8, 15);
+        for(int i = 0; i < 30 * 16; i++) {
+            assertEquals(first.cellAt(i) & ~Location.TYPE_MASK, second.cellAt(i) & ~Location.TYPE_MASK);
+        }
+        
+        first.reset();
+        assertFalse(first.areMinesPlaced());
+        for(int i = 0; i < 30 * 16; i++) {
+            assertEquals(0, first.cellAt(i));
+        }
+        assertEquals(Grid.Result.NONE, first.getResult());
+        assertEquals(Grid.Placement.SAFE_AREA, first.getPlacement());
+        assertTrue(new Grid(4, 4, 2).areMinesPlaced());
+    }
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
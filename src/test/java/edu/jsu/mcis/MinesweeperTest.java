@@ -4,6 +4,8 @@ import org.junit.*;
 import static org.junit.Assert.*;
 
 import java.awt.*;
+import java.awt.event.*;
+import java.nio.file.*;
 import javax.swing.*;
 
 public class MinesweeperTest {
@@ -59,17 +61,177 @@ public class MinesweeperTest {
         }
     }
     
+    private static void click(Component board, int button, int row, int col) {
+        MouseEvent event = new MouseEvent(board, MouseEvent.MOUSE_CLICKED, 0L, 0, 
+                                          col * 50 + 25, row * 50 + 25, 1, false, button);
+        for(MouseListener listener : board.getMouseListeners()) {
+            listener.mouseClicked(event);
+        }
+    }
+    
+    @Test
+    public final void testClickBurstsAreApplied() throws Exception {
+        final Minesweeper m = new Minesweeper();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                Component board = getComponentByName(m, "board");
+                click(board, MouseEvent.BUTTON3, 3, 5);
+                click(board, MouseEvent.BUTTON3, 3, 5);
+                click(board, MouseEvent.BUTTON3, 3, 5);
+                click(board, MouseEvent.BUTTON3, 0, 0);
+                click(board, MouseEvent.BUTTON3, 0, 0);
+                click(board, MouseEvent.BUTTON3, 9, 9);
+            }
+        });
+        m.awaitIdle();
+        assertEquals("flagged", ((JLabel)getComponentByName(m, "cell:3:5")).getToolTipText());
+        assertEquals("covered", ((JLabel)getComponentByName(m, "cell:0:0")).getToolTipText());
+        assertEquals("9", ((JLabel)getComponentByName(m, "flags")).getText());
+        assertTrue(((Ticker)getComponentByName(m, "ticker")).isRunning());
+    }
+    
+    @Test
+    public final void testUndoAndRedoUpdateTheBoard() throws Exception {
+        final Minesweeper m = new Minesweeper();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                Component board = getComponentByName(m, "board");
+                click(board, MouseEvent.BUTTON3, 3, 5);
+                click(board, MouseEvent.BUTTON3, 0, 0);
+                m.undo();
+                m.undo();
+                m.redo();
+            }
+        });
+        m.awaitIdle();
+        assertEquals("flagged", ((JLabel)getComponentByName(m, "cell:3:5")).getToolTipText());
+        assertEquals("covered", ((JLabel)getComponentByName(m, "cell:0:0")).getToolTipText());
+        assertEquals("9", ((JLabel)getComponentByName(m, "flags")).getText());
+    }
+    
+    @Test
+    public final void testNewGameTakesPooledBoard() throws Exception {
+        final Minesweeper m = new Minesweeper();
+        final BoardPool pool = new BoardPool(2, 1);
+        try {
+            m.setBoardPool(pool);
+            long deadline = System.currentTimeMillis() + 10000;
+            while(pool.getReadyCount(8, 8, 10) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            SwingUtilities.invokeAndWait(new Runnable() {
+                public void run() {
+                    click(getComponentByName(m, "board"), MouseEvent.BUTTON3, 3, 5);
+                }
+            });
+            SwingUtilities.invokeAndWait(new Runnable() {
+                public void run() {
+                    ((JButton)getComponentByName(m, "newGame")).doClick();
+                }
+            });
+            m.awaitIdle();
+            assertEquals("10", ((JLabel)getComponentByName(m, "flags")).getText());
+            assertFalse(((Ticker)getComponentByName(m, "ticker")).isRunning());
+            assertEquals(1, pool.getHits());
+            assertEquals(0, pool.getMisses());
+            int opened = 0;
+            for(int i = 0; i < 8; i++) {
+                for(int j = 0; j < 8; j++) {
+                    JLabel cell = (JLabel)getComponentByName(m, "cell:" + i + ":" + j);
+                    if(cell.getBorder() != BorderFactory.createRaisedBevelBorder()) {
+                        opened++;
+                    }
+                }
+            }
+            assertTrue(opened > 0);
+        }
+        finally {
+            pool.close();
+        }
+    }
+    
+    @Test
+    public final void testClicksOnNamedCellsReachTheBoard() throws Exception {
+        final Minesweeper m = new Minesweeper();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                Component cell = getComponentByName(m, "cell:3:5");
+                cell.dispatchEvent(new MouseEvent(cell, MouseEvent.MOUSE_CLICKED, 0L, 0, 
+                                                  25, 25, 1, false, MouseEvent.BUTTON3));
+            }
+        });
+        m.awaitIdle();
+        assertEquals("flagged", ((JLabel)getComponentByName(m, "cell:3:5")).getToolTipText());
+        assertEquals("covered", ((JLabel)getComponentByName(m, "cell:0:0")).getToolTipText());
+        assertEquals("9", ((JLabel)getComponentByName(m, "flags")).getText());
+    }
+    
+    @Test
+    public final void testNewGameClockWaitsForFirstMove() throws Exception {
+        final Minesweeper m = new Minesweeper();
+        final Ticker ticker = (Ticker)getComponentByName(m, "ticker");
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                click(getComponentByName(m, "board"), MouseEvent.BUTTON3, 3, 5);
+                ((JButton)getComponentByName(m, "newGame")).doClick();
+            }
+        });
+        m.awaitIdle();
+        Thread.sleep(2500);
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                assertFalse(ticker.isRunning());
+                assertEquals(0, ticker.getSeconds());
+                assertEquals("00:00", ticker.getText());
+                click(getComponentByName(m, "board"), MouseEvent.BUTTON3, 3, 5);
+            }
+        });
+        assertTrue(ticker.isRunning());
+    }
+    
+    @Test
+    public final void testMovesAreRecorded() throws Exception {
+        final Minesweeper m = new Minesweeper(8, 8, 10, 1234);
+        Path path = Files.createTempFile("minesweeper", ".journal");
+        try {
+            m.record(path);
+            SwingUtilities.invokeAndWait(new Runnable() {
+                public void run() {
+                    Component board = getComponentByName(m, "board");
+                    click(board, MouseEvent.BUTTON3, 3, 5);
+                    click(board, MouseEvent.BUTTON3, 3, 5);
+                }
+            });
+            m.awaitIdle();
+            MoveJournal journal = MoveJournal.read(path);
+            assertEquals(1234, journal.getSeed());
+            assertEquals(2, journal.getMoveCount());
+            assertEquals(MoveJournal.FLAG, journal.getOp(0));
+            assertEquals(MoveJournal.UNFLAG, journal.getOp(1));
+            assertEquals(3, journal.getRow(1));
+            assertEquals(5, journal.getCol(1));
+        }
+        finally {
+            Files.delete(path);
+        }
+    }
+    
+    @Test
+    public final void testSavedGameResumes() throws Exception {
+        Grid grid = new Grid(8, 8, 10, new java.util.Random(7));
+        grid.placeFlagAt(2, 2);
+        grid.placeFlagAt(4, 6);
+        Path path = Files.createTempFile("minesweeper", ".snapshot");
+        try {
+            GridSnapshot.save(grid, 125, path);
+            Minesweeper m = new Minesweeper(GridSnapshot.load(path));
+            assertEquals("8", ((JLabel)getComponentByName(m, "flags")).getText());
+            assertEquals("02:05", ((Ticker)getComponentByName(m, "ticker")).getText());
+            assertEquals("flagged", ((JLabel)getComponentByName(m, "cell:4:6")).getToolTipText());
+            assertFalse(((Ticker)getComponentByName(m, "ticker")).isRunning());
+        }
+        finally {
+            Files.delete(path);
+        }
+    }
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,33 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class MoveBatchTest {
+    
+    @Test
+    public void testMovesAreKeptInOrder() {
+        MoveBatch batch = new MoveBatch(1);
+        assertTrue(batch.isEmpty());
+        batch.uncover(1, 2).flag(3, 4).unflag(5, 6).chord(7, 8);
+        assertEquals(4, batch.size());
+        assertEquals(MoveJournal.UNCOVER, batch.getOp(0));
+        assertEquals(MoveJournal.FLAG, batch.getOp(1));
+        assertEquals(MoveJournal.UNFLAG, batch.getOp(2));
+        assertEquals(MoveJournal.CHORD, batch.getOp(3));
+        assertEquals(7, batch.getRow(3));
+        assertEquals(8, batch.getCol(3));
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUndoIsNotAMove() {
+        new MoveBatch().add(MoveJournal.UNDO, 0, 0);
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testReadingPastTheEndFails() {
+        new MoveBatch().uncover(0, 0).getOp(1);
+    }
+}
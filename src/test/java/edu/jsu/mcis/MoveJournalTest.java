@@ -0,0 +1,155 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class MoveJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    /**
+     * This method plays a game on a board from the given seed with
+     * random moves (mostly uncovers, some chords, flags, unflags, undos,
+     * and redos), records
+     * it, and returns the result the grid ended with.
+     */
+    private Grid.Result record(Path path, long seed, int width, int height, int mines) throws IOException {
+        Grid grid = new Grid(width, height, mines, new Random(seed));
+        grid.setUndoEnabled(true);
+        Random player = new Random(seed * 31);
+        try(MoveJournal.Writer writer = new MoveJournal.Writer(path, seed, width, height, mines)) {
+            while(grid.getResult() == Grid.Result.NONE) {
+                int row = player.nextInt(height);
+                int col = player.nextInt(width);
+                int op = player.nextInt(10) == 0 ? (grid.isFlagAt(row, col) ? MoveJournal.UNFLAG : MoveJournal.FLAG) : MoveJournal.UNCOVER;
+                if(op == MoveJournal.UNCOVER && grid.getLocation(row, col).getType() == Location.Type.UNCOVERED) {
+                    op = MoveJournal.CHORD;
+                }
+                if(player.nextInt(10) == 0) {
+                    op = player.nextBoolean() ? MoveJournal.UNDO : MoveJournal.REDO;
+                    row = 0;
+                    col = 0;
+                }
+                writer.write(op, row, col, player.nextInt(5000));
+                MoveJournal.apply(grid, op, row, col);
+            }
+            writer.end(grid.getResult());
+        }
+        return grid.getResult();
+    }
+    
+    @Test
+    public void testRecordedGamesReplayExactly() throws IOException {
+        Path path = folder.newFile().toPath();
+        for(long seed = 0; seed < 50; seed++) {
+            Grid.Result result = record(path, seed, 9, 9, 10);
+            MoveJournal journal = MoveJournal.read(path);
+            assertEquals(seed, journal.getSeed());
+            assertEquals(9, journal.getWidth());
+            assertEquals(10, journal.getMines());
+            assertEquals(result, journal.getResult());
+            assertTrue(journal.verify());
+        }
+    }
+    
+    @Test
+    public void testPlacementIsRecorded() throws IOException {
+        Path path = folder.newFile().toPath();
+        Grid grid = new Grid(16, 16, 40, new Random(8), Grid.Placement.SAFE_AREA);
+        try(MoveJournal.Writer writer = new MoveJournal.Writer(path, 8, 16, 16, 40, Grid.Placement.SAFE_AREA)) {
+            writer.write(MoveJournal.UNCOVER, 7, 7, 0);
+            grid.uncoverAt(7, 7);
+        }
+        MoveJournal journal = MoveJournal.read(path);
+        assertEquals(Grid.Placement.SAFE_AREA, journal.getPlacement());
+        Grid replayed = journal.newGrid();
+        journal.replay(replayed);
+        for(int i = 0; i < 16 * 16; i++) {
+            assertEquals(grid.cellAt(i), replayed.cellAt(i));
+        }
+    }
+    
+    @Test
+    public void testRecordsAreCompact() throws IOException {
+        Path path = folder.newFile().toPath();
+        try(MoveJournal.Writer writer = new MoveJournal.Writer(path, 1, 30, 16, 99)) {
+            writer.write(MoveJournal.UNCOVER, 3, 4, 0);
+            writer.write(MoveJournal.FLAG, 15, 29, 10);
+            writer.write(MoveJournal.UNFLAG, 15, 29, 1000);
+        }
+        assertEquals(MoveJournal.HEADER_SIZE + 3 + 3 + 4, Files.size(path));
+        MoveJournal journal = MoveJournal.read(path);
+        assertEquals(3, journal.getMoveCount());
+        assertEquals(MoveJournal.FLAG, journal.getOp(1));
+        assertEquals(15, journal.getRow(1));
+        assertEquals(29, journal.getCol(1));
+        assertEquals(10, journal.getDelay(1));
+        assertEquals(1000, journal.getDelay(2));
+        assertEquals(Grid.Result.NONE, journal.getResult());
+    }
+    
+    @Test
+    public void testMovesOnNegativeLocationsAreNotRecorded() throws IOException {
+        Path path = folder.newFile().toPath();
+        try(MoveJournal.Writer writer = new MoveJournal.Writer(path, 1, 30, 16, 99)) {
+            writer.write(MoveJournal.UNCOVER, 3, 4, 0);
+            try {
+                writer.write(MoveJournal.FLAG, -1, 4, 0);
+                fail("a negative row should be rejected");
+            }
+            catch(IllegalArgumentException e) {
+            }
+            writer.write(new MoveBatch().flag(0, -2).flag(5, 6).uncover(-1, -1).chord(3, 4));
+            writer.end(Grid.Result.LOSE);
+        }
+        MoveJournal journal = MoveJournal.read(path);
+        assertEquals(3, journal.getMoveCount());
+        assertEquals(MoveJournal.FLAG, journal.getOp(1));
+        assertEquals(5, journal.getRow(1));
+        assertEquals(MoveJournal.CHORD, journal.getOp(2));
+        assertEquals(Grid.Result.LOSE, journal.getResult());
+    }
+    
+    @Test
+    public void testTruncatedJournalKeepsCompleteMoves() throws IOException {
+        Path path = folder.newFile().toPath();
+        try(MoveJournal.Writer writer = new MoveJournal.Writer(path, 1, 300, 300, 100)) {
+            writer.write(MoveJournal.UNCOVER, 3, 4, 0);
+            writer.write(MoveJournal.UNCOVER, 200, 250, 0);
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        assertEquals(1, MoveJournal.read(path).getMoveCount());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testOtherFilesAreRejected() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, new byte[40]);
+        MoveJournal.read(path);
+    }
+    
+    @Test
+    public void testThousandsOfGamesVerifyPerSecond() throws IOException {
+        List<MoveJournal> journals = new ArrayList<>();
+        for(long seed = 0; seed < 200; seed++) {
+            Path path = folder.newFile().toPath();
+            record(path, seed, 16, 16, 40);
+            journals.add(MoveJournal.read(path));
+        }
+        long start = System.nanoTime();
+        for(int round = 0; round < 10; round++) {
+            for(MoveJournal journal : journals) {
+                assertTrue(journal.verify());
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertTrue(2000 / seconds + " games per second", 2000 / seconds > 1000);
+    }
+}
@@ -0,0 +1,139 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class ProbabilityEngineTest {
+
+    /**
+     * This method computes the mine probabilities of a small grid by
+     * trying every set of covered locations as the mines and keeping
+     * the sets that agree with every uncovered hint.
+     */
+    private double[] bruteForce(Grid grid) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        List<Integer> covered = new ArrayList<>();
+        for(int i = 0; i < width * height; i++) {
+            if(grid.getLocation(i / width, i % width).getType() != Location.Type.UNCOVERED) {
+                covered.add(i);
+            }
+        }
+        double[] counts = new double[width * height];
+        double total = 0;
+        for(int set = 0; set < (1 << covered.size()); set++) {
+            if(Integer.bitCount(set) != grid.getMines()) {
+                continue;
+            }
+            boolean[] mine = new boolean[width * height];
+            for(int b = 0; b < covered.size(); b++) {
+                mine[covered.get(b)] = (set & (1 << b)) != 0;
+            }
+            boolean fits = true;
+            for(int i = 0; i < width * height && fits; i++) {
+                if(grid.getLocation(i / width, i % width).getType() != Location.Type.UNCOVERED) {
+                    continue;
+                }
+                int count = 0;
+                for(int r = i / width - 1; r <= i / width + 1; r++) {
+                    for(int c = i % width - 1; c <= i % width + 1; c++) {
+                        if(r >= 0 && r < height && c >= 0 && c < width && mine[r * width + c]) {
+                            count++;
+                        }
+                    }
+                }
+                fits = count == grid.getLocation(i / width, i % width).getHint();
+            }
+            if(fits) {
+                total++;
+                for(int i = 0; i < mine.length; i++) {
+                    if(mine[i]) {
+                        counts[i]++;
+                    }
+                }
+            }
+        }
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] /= total;
+        }
+        return counts;
+    }
+
+    @Test
+    public final void testProbabilitiesMatchBruteForce() {
+        Random random = new Random(3);
+        Grid grid = new Grid(4, 4, 4, random);
+        ProbabilityEngine engine = new ProbabilityEngine(grid);
+        for(int game = 0; game < 30; game++) {
+            int opened = 0;
+            for(int i = 0; i < 16 && opened < 2; i++) {
+                if(grid.getLocation(i / 4, i % 4).hasMine() == false && grid.getLocation(i / 4, i % 4).getType() == Location.Type.COVERED) {
+                    grid.uncoverAt(i / 4, i % 4);
+                    opened++;
+                    i += 5;
+                }
+            }
+            double[] expected = bruteForce(grid);
+            double[] actual = engine.compute();
+            for(int i = 0; i < 16; i++) {
+                assertEquals("game " + game + ", location " + i, expected[i], actual[i], 1e-9);
+            }
+            grid.reset();
+        }
+    }
+
+    @Test
+    public final void testCertainLocations() {
+        // The 1-2-1 pattern from SolverTest: the corners below are mines
+        // and the middle is safe.
+        Grid grid = new Grid(3, 2, 2, new Random(0));
+        for(int col = 0; col < 3; col++) {
+            grid.getLocation(0, col).setMine(false);
+            grid.getLocation(1, col).setMine(col != 1);
+        }
+        grid.getLocation(0, 0).setHint(1);
+        grid.getLocation(0, 1).setHint(2);
+        grid.getLocation(0, 2).setHint(1);
+        for(int col = 0; col < 3; col++) {
+            grid.getLocation(0, col).setType(Location.Type.UNCOVERED);
+        }
+        double[] probability = new ProbabilityEngine(grid).compute();
+        assertArrayEquals(new double[] {0, 0, 0, 1, 0, 1}, probability, 1e-12);
+    }
+
+    @Test
+    public final void testExpertFrontierSumsToMineCount() {
+        Random random = new Random(5);
+        Grid grid = new Grid(30, 16, 99, random);
+        Solver solver = new Solver(grid);
+        ProbabilityEngine engine = new ProbabilityEngine(grid);
+        for(int game = 0; game < 10; game++) {
+            for(int i = 0; i < 30 * 16; i++) {
+                if(grid.getLocation(i / 30, i % 30).hasMine() == false && grid.getLocation(i / 30, i % 30).getHint() == 0) {
+                    grid.uncoverAt(i / 30, i % 30);
+                    break;
+                }
+            }
+            int safe;
+            while(solver.solve() >= 0 && (safe = solver.nextSafe()) >= 0) {
+                grid.uncoverAt(safe / 30, safe % 30);
+            }
+            double[] probability = engine.compute();
+            double sum = 0;
+            for(int i = 0; i < probability.length; i++) {
+                assertTrue(probability[i] >= -1e-12 && probability[i] <= 1 + 1e-12);
+                if(solver.isKnownMine(i / 30, i % 30)) {
+                    assertEquals(1, probability[i], 1e-9);
+                }
+                sum += probability[i];
+            }
+            if(grid.getResult() == Grid.Result.NONE) {
+                assertEquals(99, sum, 1e-6);
+            }
+            grid.reset();
+            solver.reset();
+        }
+    }
+}
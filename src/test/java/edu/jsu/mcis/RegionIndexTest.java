@@ -0,0 +1,84 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class RegionIndexTest {
+    
+    /**
+     * This method counts the locations of a type in a rectangle by
+     * scanning it, clipped to the grid.
+     */
+    private static int scan(Grid grid, Location.Type type, int top, int left, int bottom, int right) {
+        int count = 0;
+        for(int r = Math.max(top, 0); r <= Math.min(bottom, grid.getHeight() - 1); r++) {
+            for(int c = Math.max(left, 0); c <= Math.min(right, grid.getWidth() - 1); c++) {
+                if(grid.getLocation(r, c).getType() == type) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    private static void assertMatches(Grid grid, Random random) {
+        RegionIndex index = grid.getRegionIndex();
+        for(int i = 0; i < 50; i++) {
+            int top = random.nextInt(grid.getHeight() + 4) - 2;
+            int left = random.nextInt(grid.getWidth() + 4) - 2;
+            int bottom = top + random.nextInt(grid.getHeight());
+            int right = left + random.nextInt(grid.getWidth());
+            assertEquals(scan(grid, Location.Type.FLAGGED, top, left, bottom, right), index.getFlagged(top, left, bottom, right));
+            assertEquals(scan(grid, Location.Type.UNCOVERED, top, left, bottom, right), index.getUncovered(top, left, bottom, right));
+            assertEquals(scan(grid, Location.Type.COVERED, top, left, bottom, right), index.getCovered(top, left, bottom, right));
+        }
+    }
+    
+    @Test
+    public void testCountsFollowEveryKindOfMove() {
+        Grid grid = new Grid(37, 23, 90, new Random(3));
+        grid.setUndoEnabled(true);
+        assertNull(grid.getRegionIndex());
+        grid.placeFlagAt(4, 4);
+        grid.setRegionIndexEnabled(true);
+        Random random = new Random(5);
+        assertMatches(grid, random);
+        for(int move = 0; move < 300; move++) {
+            int row = random.nextInt(23);
+            int col = random.nextInt(37);
+            int kind = random.nextInt(10);
+            if(kind < 4) {
+                grid.placeFlagAt(row, col);
+            }
+            else if(kind < 5) {
+                grid.removeFlagAt(row, col);
+            }
+            else if(kind < 7) {
+                grid.uncoverAt(row, col);
+            }
+            else if(kind < 8) {
+                grid.chordAt(row, col);
+            }
+            else if(kind < 9) {
+                grid.undo();
+            }
+            else {
+                grid.apply(new MoveBatch().uncover(row, col).flag(col % 23, row));
+            }
+            assertMatches(grid, random);
+        }
+        grid.reset();
+        assertEquals(0, grid.getRegionIndex().getUncovered(0, 0, 22, 36));
+        assertEquals(37 * 23, grid.getRegionIndex().getCovered(-5, -5, 100, 100));
+        assertEquals(0, grid.getRegionIndex().getCovered(10, 10, 9, 20));
+        grid.setRegionIndexEnabled(false);
+        assertNull(grid.getRegionIndex());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void testConcurrentGridHasNoIndex() {
+        new ConcurrentGrid(8, 8, 10).setRegionIndexEnabled(true);
+    }
+}
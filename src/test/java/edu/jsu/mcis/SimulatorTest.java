@@ -0,0 +1,58 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class SimulatorTest {
+    
+    @Test
+    public final void testRunIsRepeatableOnAnyNumberOfThreads() throws InterruptedException {
+        Simulator simulator = new Simulator(9, 9, 10, SolverStrategy::new);
+        simulator.setThreads(1);
+        Simulator.Summary single = simulator.run(100, 600);
+        simulator.setThreads(4);
+        Simulator.Summary parallel = simulator.run(100, 600);
+        assertEquals(600, single.getGames());
+        assertEquals(600, parallel.getGames());
+        assertEquals(single.getWins(), parallel.getWins());
+        assertEquals(single.getLosses(), parallel.getLosses());
+        assertEquals(single.getClicks(), parallel.getClicks());
+        assertEquals(600, single.getWins() + single.getLosses());
+        assertTrue(single.getWinRate() > 0.5);
+    }
+    
+    @Test
+    public final void testGamesUseConsecutiveSeeds() throws InterruptedException {
+        List<String> boards = Collections.synchronizedList(new ArrayList<>());
+        Simulator simulator = new Simulator(5, 5, 5, () -> grid -> {
+            StringBuilder board = new StringBuilder();
+            for(int r = 0; r < 5; r++) {
+                for(int c = 0; c < 5; c++) {
+                    board.append(grid.getLocation(r, c).hasMine() ? '*' : '.');
+                }
+            }
+            boards.add(board.toString());
+            return 0;
+        });
+        simulator.setThreads(3);
+        Simulator.Summary summary = simulator.run(40, 10);
+        assertEquals(10, summary.getGames());
+        assertEquals(0, summary.getClicks());
+        assertEquals(0, summary.getWins() + summary.getLosses());
+        
+        Set<String> expected = new HashSet<>();
+        for(long seed = 40; seed < 50; seed++) {
+            Grid grid = new Grid(5, 5, 5, new Random(seed));
+            StringBuilder board = new StringBuilder();
+            for(int r = 0; r < 5; r++) {
+                for(int c = 0; c < 5; c++) {
+                    board.append(grid.getLocation(r, c).hasMine() ? '*' : '.');
+                }
+            }
+            expected.add(board.toString());
+        }
+        assertEquals(expected, new HashSet<>(boards));
+    }
+}
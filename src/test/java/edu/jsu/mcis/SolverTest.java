@@ -0,0 +1,97 @@
+package edu.jsu.mcis;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class SolverTest {
+    
+    /**
+     * This method plays the grid using only the solver's certain moves,
+     * starting from an open location, and checks every deduction
+     * against the real mines.
+     */
+    private Grid.Result play(Grid grid, Solver solver) {
+        for(int i = 0; i < grid.getWidth() * grid.getHeight(); i++) {
+            int row = i / grid.getWidth();
+            int col = i % grid.getWidth();
+            if(grid.getLocation(row, col).hasMine() == false && grid.getLocation(row, col).getHint() == 0) {
+                grid.uncoverAt(row, col);
+                break;
+            }
+        }
+        while(grid.getResult() == Grid.Result.NONE) {
+            solver.solve();
+            int mine;
+            while((mine = solver.nextMine()) >= 0) {
+                assertTrue(grid.getLocation(mine / grid.getWidth(), mine % grid.getWidth()).hasMine());
+            }
+            int safe = solver.nextSafe();
+            if(safe < 0) {
+                break;
+            }
+            assertFalse(grid.getLocation(safe / grid.getWidth(), safe % grid.getWidth()).hasMine());
+            grid.uncoverAt(safe / grid.getWidth(), safe % grid.getWidth());
+        }
+        return grid.getResult();
+    }
+    
+    @Test
+    public final void testDeductionsAreSoundAndWinGames() {
+        Random random = new Random(7);
+        Grid grid = new Grid(9, 9, 10, random);
+        Solver solver = new Solver(grid);
+        int wins = 0;
+        for(int game = 0; game < 200; game++) {
+            Grid.Result result = play(grid, solver);
+            assertNotEquals(Grid.Result.LOSE, result);
+            if(result == Grid.Result.WIN) {
+                wins++;
+            }
+            grid.reset();
+            solver.reset();
+        }
+        assertTrue("only " + wins + " wins", wins > 100);
+    }
+    
+    @Test
+    public final void testExpertBoardsAreSound() {
+        Random random = new Random(11);
+        Grid grid = new Grid(30, 16, 99, random);
+        Solver solver = new Solver(grid);
+        for(int game = 0; game < 50; game++) {
+            assertNotEquals(Grid.Result.LOSE, play(grid, solver));
+            grid.reset();
+            solver.reset();
+        }
+    }
+    
+    @Test
+    public final void testSubsetRule() {
+        // A 1-2-1 pattern along the top edge of a 3-by-2 board:
+        //     1 2 1
+        //     . . .
+        // The 1s and the 2 together prove the corners below are mines
+        // and the middle is safe, which neither 1 shows on its own.
+        Grid grid = new Grid(3, 2, 2, new Random(0));
+        for(int col = 0; col < 3; col++) {
+            grid.getLocation(0, col).setMine(false);
+            grid.getLocation(1, col).setMine(col != 1);
+        }
+        grid.getLocation(0, 0).setHint(1);
+        grid.getLocation(0, 1).setHint(2);
+        grid.getLocation(0, 2).setHint(1);
+        for(int col = 0; col < 3; col++) {
+            grid.getLocation(0, col).setType(Location.Type.UNCOVERED);
+        }
+        Solver solver = new Solver(grid);
+        solver.solve();
+        assertTrue(solver.isKnownMine(1, 0));
+        assertTrue(solver.isKnownSafe(1, 1));
+        assertTrue(solver.isKnownMine(1, 2));
+        assertEquals(2, solver.getKnownMineCount());
+        assertEquals(4, solver.nextSafe());
+        assertEquals(-1, solver.nextSafe());
+    }
+}
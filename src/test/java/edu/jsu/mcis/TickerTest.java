@@ -55,6 +55,13 @@ public class TickerTest {
         ticker.reset();
         assertFalse(ticker.isRunning());
         assertEquals("00:00", ticker.getText());
+        try {
+            Thread.currentThread().sleep(1500);
+            assertEquals(0, ticker.getSeconds());
+        }
+        catch(InterruptedException e) {
+            assertEquals("", "Thread was interrupted. Run test again.");
+        }
     }
 
     @Test